@@ -0,0 +1,153 @@
+package ca.krasnay.javautils.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.krasnay.javautils.IOUtils;
+
+/**
+ * Compares two JMH result files written with <code>-rf csv</code> and prints
+ * the change in score for each benchmark present in both. Used to compare a
+ * run against a stored baseline:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar ca.krasnay.javautils.benchmarks.CompareResults \
+ *     baseline.csv results.csv [threshold-percent]
+ * </pre>
+ *
+ * Benchmarks that are worse than the baseline by more than the threshold
+ * (default 10%) are flagged, and the exit status is 1 if there are any. For
+ * secondary results such as the allocation rates reported by
+ * <code>-prof gc</code>, lower is taken to be better.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public class CompareResults {
+
+    private static class Result {
+        String mode;
+        double score;
+        String unit;
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults baseline.csv results.csv [threshold-percent]");
+            System.exit(2);
+        }
+
+        Map<String, Result> baseline = load(new File(args[0]));
+        Map<String, Result> current = load(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        int regressions = 0;
+
+        System.out.println(String.format("%-90s %14s %14s %-12s %8s", "Benchmark", "Baseline", "Current", "Unit", "Change"));
+
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+
+            Result base = baseline.get(entry.getKey());
+            Result cur = entry.getValue();
+
+            if (base == null || !base.unit.equals(cur.unit)) {
+                System.out.println(String.format("%-90s %14s %14.3f %-12s %8s", entry.getKey(), "-", cur.score, cur.unit, "new"));
+                continue;
+            }
+
+            double change = base.score == 0 ? 0 : (cur.score - base.score) * 100 / base.score;
+
+            // Throughput is better when higher; times and allocation rates
+            // are better when lower.
+            boolean higherIsBetter = "thrpt".equals(cur.mode) && !entry.getKey().contains(":");
+            double worsening = higherIsBetter ? -change : change;
+            boolean regressed = worsening > threshold;
+
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.println(String.format("%-90s %14.3f %14.3f %-12s %+7.1f%%%s",
+                    entry.getKey(), base.score, cur.score, cur.unit, change, regressed ? "  REGRESSION" : ""));
+        }
+
+        if (regressions > 0) {
+            System.out.println(String.format("%d benchmark(s) regressed by more than %.1f%%", regressions, threshold));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads a JMH CSV result file, keyed by benchmark name plus parameters.
+     */
+    private static Map<String, Result> load(File file) {
+
+        String[] lines = IOUtils.toStringUtf8(file).split("\r?\n");
+        List<String> header = parseLine(lines[0]);
+
+        int benchmarkCol = header.indexOf("Benchmark");
+        int modeCol = header.indexOf("Mode");
+        int scoreCol = header.indexOf("Score");
+        int unitCol = header.indexOf("Unit");
+
+        Map<String, Result> results = new LinkedHashMap<String, Result>();
+
+        for (int i = 1; i < lines.length; i++) {
+
+            if (lines[i].trim().length() == 0) {
+                continue;
+            }
+
+            List<String> values = parseLine(lines[i]);
+
+            StringBuilder key = new StringBuilder(values.get(benchmarkCol));
+            for (int col = 0; col < header.size(); col++) {
+                if (header.get(col).startsWith("Param: ") && col < values.size() && values.get(col).length() > 0) {
+                    key.append(' ').append(header.get(col).substring(7)).append('=').append(values.get(col));
+                }
+            }
+
+            Result result = new Result();
+            result.mode = values.get(modeCol);
+            result.score = Double.parseDouble(values.get(scoreCol));
+            result.unit = values.get(unitCol);
+            results.put(key.toString(), result);
+        }
+
+        return results;
+    }
+
+    /**
+     * Splits a CSV line, removing the quotes JMH puts around each value.
+     */
+    private static List<String> parseLine(String line) {
+
+        List<String> values = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                values.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        values.add(sb.toString());
+
+        return values;
+    }
+
+}
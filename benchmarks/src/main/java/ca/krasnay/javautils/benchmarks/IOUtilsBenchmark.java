@@ -0,0 +1,92 @@
+package ca.krasnay.javautils.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.krasnay.javautils.IOUtils;
+
+/**
+ * Benchmarks for copying and reading streams with IOUtils. Output goes to
+ * sinks that discard it, so only the cost of IOUtils itself is measured.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IOUtilsBenchmark {
+
+    private static final OutputStream NULL_OUTPUT_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private static final Writer NULL_WRITER = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Param({ "1024", "65536", "1048576" })
+    public int size;
+
+    private byte[] bytes;
+
+    private char[] chars;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 'x');
+        chars = new char[size];
+        Arrays.fill(chars, 'x');
+    }
+
+    @Benchmark
+    public void copyStream() {
+        IOUtils.copy(new ByteArrayInputStream(bytes), NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public void copyReader() {
+        IOUtils.copy(new CharArrayReader(chars), NULL_WRITER);
+    }
+
+    @Benchmark
+    public String toStringUtf8() {
+        return IOUtils.toStringUtf8(new ByteArrayInputStream(bytes));
+    }
+
+}
@@ -0,0 +1,105 @@
+package ca.krasnay.javautils.benchmarks;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.krasnay.javautils.ObjectUtils;
+
+/**
+ * Benchmarks for cloning and comparing objects with ObjectUtils. The size
+ * parameter is the number of beans in the list being cloned or compared.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectUtilsBenchmark {
+
+    public static class Bean implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int id;
+        private String name;
+        private double amount;
+        private int[] tags;
+
+        public Bean(int id) {
+            this.id = id;
+            this.name = "bean" + id;
+            this.amount = id * 1.5;
+            this.tags = new int[] { id, id + 1, id + 2 };
+        }
+    }
+
+    @Param({ "1", "100", "10000" })
+    public int size;
+
+    private ArrayList<Bean> beans;
+
+    private ArrayList<Bean> otherBeans;
+
+    private Object[] keyArray1;
+
+    private Object[] keyArray2;
+
+    @Setup
+    public void setup() {
+        beans = new ArrayList<Bean>();
+        otherBeans = new ArrayList<Bean>();
+        for (int i = 0; i < size; i++) {
+            beans.add(new Bean(i));
+            otherBeans.add(new Bean(i));
+        }
+        keyArray1 = new Object[] { "key", size, new int[] { 1, 2, 3 } };
+        keyArray2 = new Object[] { "key", size, new int[] { 1, 2, 3 } };
+    }
+
+    @Benchmark
+    public Object cloneSerializable() {
+        return ObjectUtils.cloneSerializable(beans);
+    }
+
+    @Benchmark
+    public List<Bean> cloneAll() {
+        return ObjectUtils.cloneAll(beans);
+    }
+
+    @Benchmark
+    public boolean reflectionEquals() {
+        boolean result = true;
+        for (int i = 0; i < size; i++) {
+            result &= ObjectUtils.reflectionEquals(beans.get(i), otherBeans.get(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public boolean equalsString() {
+        return ObjectUtils.equals("foo", "foo");
+    }
+
+    @Benchmark
+    public boolean equalsArray() {
+        return ObjectUtils.equals(keyArray1, keyArray2);
+    }
+
+}
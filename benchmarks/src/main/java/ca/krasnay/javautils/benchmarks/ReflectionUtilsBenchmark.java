@@ -0,0 +1,78 @@
+package ca.krasnay.javautils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.krasnay.javautils.ReflectionUtils;
+
+/**
+ * Benchmarks for field access through ReflectionUtils. The field parameter
+ * selects a field declared on the class itself, on its superclass or two
+ * levels up, since lookups walk the hierarchy.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReflectionUtilsBenchmark {
+
+    public static class Grandparent {
+        private int grandparentValue = 1;
+    }
+
+    public static class Parent extends Grandparent {
+        private String parentValue = "parent";
+        private Child child;
+    }
+
+    public static class Child extends Parent {
+        private long childValue = 3;
+    }
+
+    @Param({ "childValue", "parentValue", "grandparentValue" })
+    public String field;
+
+    private Child object;
+
+    @Setup
+    public void setup() {
+        object = new Child();
+        ((Parent) object).child = new Child();
+    }
+
+    @Benchmark
+    public Object getFieldValue() {
+        return ReflectionUtils.getFieldValue(object, field);
+    }
+
+    @Benchmark
+    public Object getDeepFieldValue() {
+        return ReflectionUtils.getDeepFieldValue(object, "child." + field);
+    }
+
+    @Benchmark
+    public void setFieldValue() {
+        ReflectionUtils.setFieldValue(object, "childValue", 42L);
+    }
+
+    @Benchmark
+    public Object getDeclaredFieldsInHierarchy() {
+        return ReflectionUtils.getDeclaredFieldsInHierarchy(Child.class);
+    }
+
+}
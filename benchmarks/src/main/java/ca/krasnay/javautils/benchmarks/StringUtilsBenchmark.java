@@ -0,0 +1,71 @@
+package ca.krasnay.javautils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.krasnay.javautils.StringUtils;
+
+/**
+ * Benchmarks for StringUtils. The size parameter is the number of items
+ * joined.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringUtilsBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int size;
+
+    private List<Object> items;
+
+    private Object[] itemArray;
+
+    @Setup
+    public void setup() {
+        items = new ArrayList<Object>();
+        for (int i = 0; i < size; i++) {
+            items.add(i % 2 == 0 ? (Object) ("item" + i) : (Object) i);
+        }
+        itemArray = items.toArray();
+    }
+
+    @Benchmark
+    public String joinList() {
+        return StringUtils.join(", ", items);
+    }
+
+    @Benchmark
+    public String joinListParallel() {
+        return StringUtils.join(", ", items, true);
+    }
+
+    @Benchmark
+    public String joinArray() {
+        return StringUtils.join(", ", itemArray);
+    }
+
+    @Benchmark
+    public boolean isBlank() {
+        return StringUtils.isBlank("   x   ");
+    }
+
+}
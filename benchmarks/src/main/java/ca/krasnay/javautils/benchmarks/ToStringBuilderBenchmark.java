@@ -0,0 +1,48 @@
+package ca.krasnay.javautils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.krasnay.javautils.ToStringBuilder;
+
+/**
+ * Benchmarks for building toString output with ToStringBuilder. The fields
+ * parameter is the number of key/value pairs appended.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToStringBuilderBenchmark {
+
+    private static final String[] KEYS = { "id", "name", "amount", "tags", "created" };
+
+    private static final Object[] VALUES = { 42, "name", 1.5, new Integer[] { 1, 2, 3 }, "2012-01-01" };
+
+    @Param({ "1", "5", "20" })
+    public int fields;
+
+    @Benchmark
+    public String toStringBuilder() {
+        ToStringBuilder builder = new ToStringBuilder(this);
+        for (int i = 0; i < fields; i++) {
+            builder.append(KEYS[i % KEYS.length], VALUES[i % VALUES.length]);
+        }
+        return builder.toString();
+    }
+
+}
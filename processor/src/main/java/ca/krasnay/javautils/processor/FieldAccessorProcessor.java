@@ -0,0 +1,303 @@
+package ca.krasnay.javautils.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import ca.krasnay.javautils.FieldAccessorTable;
+import ca.krasnay.javautils.GenerateFieldAccessors;
+
+/**
+ * Annotation processor that generates a {@link FieldAccessorTable} for each
+ * class annotated with {@link GenerateFieldAccessors}, so that ReflectionUtils
+ * can read and write its fields without reflection.
+ *
+ * The table covers every field that generated code in the class's package can
+ * access: non-private fields declared in the class, or in superclasses in the
+ * same package, that are not hidden by a field closer to the class. Fields
+ * whose type can't be named from the package, such as a private nested class
+ * of another class, are left out with a note. Reads of other fields fall back
+ * to reflection at runtime.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public class FieldAccessorProcessor extends AbstractProcessor {
+
+    private static final String ANNOTATION_NAME = GenerateFieldAccessors.class.getName();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION_NAME);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION_NAME);
+
+        if (annotation == null) {
+            return false;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateFieldAccessors may only be applied to classes");
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+
+            if (!isAccessibleFromPackage(type)) {
+                error(type, "@GenerateFieldAccessors cannot be applied to private, local or anonymous classes");
+                continue;
+            }
+
+            try {
+                generate(type);
+            } catch (IOException e) {
+                error(type, "Could not write field accessor table: " + e.getMessage());
+            }
+        }
+
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Returns true if generated code in the same package can refer to the
+     * given type.
+     */
+    private boolean isAccessibleFromPackage(TypeElement type) {
+
+        Element e = type;
+
+        while (e instanceof TypeElement) {
+            TypeElement t = (TypeElement) e;
+            if (t.getModifiers().contains(Modifier.PRIVATE)
+                    || t.getNestingKind() == NestingKind.LOCAL
+                    || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            e = t.getEnclosingElement();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if generated code in the given package can name the
+     * erasure of the given type, e.g. in a cast.
+     */
+    private boolean isAccessibleFromPackage(TypeMirror type, PackageElement pkg) {
+
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return isAccessibleFromPackage(((ArrayType) erased).getComponentType(), pkg);
+        } else if (erased.getKind() != TypeKind.DECLARED) {
+            return true;
+        }
+
+        Element e = ((DeclaredType) erased).asElement();
+
+        while (e instanceof TypeElement) {
+            TypeElement t = (TypeElement) e;
+            Set<Modifier> modifiers = t.getModifiers();
+            boolean samePackage = processingEnv.getElementUtils().getPackageOf(t).equals(pkg);
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || t.getNestingKind() == NestingKind.LOCAL
+                    || t.getNestingKind() == NestingKind.ANONYMOUS
+                    || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+                return false;
+            }
+            e = t.getEnclosingElement();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the fields of the given type that can be accessed from
+     * generated code in its package, in the same order that
+     * ReflectionUtils.getDeclaredFieldsInHierarchy would find them.
+     */
+    private List<VariableElement> getAccessibleFields(TypeElement type) {
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        List<VariableElement> result = new ArrayList<VariableElement>();
+        Set<String> seen = new HashSet<String>();
+
+        TypeElement current = type;
+
+        while (current != null && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+
+            boolean samePackage = processingEnv.getElementUtils().getPackageOf(current).equals(pkg);
+
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+
+                // A field hides any field of the same name further up the
+                // hierarchy, even if we can't access it ourselves.
+                if (!seen.add(field.getSimpleName().toString())) {
+                    continue;
+                }
+
+                if (!samePackage || field.getModifiers().contains(Modifier.PRIVATE)) {
+                    continue;
+                }
+
+                if (isAccessibleFromPackage(field.asType(), pkg)) {
+                    result.add(field);
+                } else {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                            "Field " + field.getSimpleName() + " has a type that generated code cannot refer to, so it will be accessed by reflection",
+                            field);
+                }
+            }
+
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) processingEnv.getTypeUtils().asElement(superclass)
+                    : null;
+        }
+
+        return result;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.length() == 0 ? binaryName : binaryName.substring(packageName.length() + 1))
+                + FieldAccessorTable.SUFFIX;
+        String typeName = type.getQualifiedName().toString();
+
+        List<VariableElement> fields = getAccessibleFields(type);
+
+        PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName.length() == 0 ? simpleName : packageName + "." + simpleName, type)
+                .openWriter());
+
+        try {
+
+            if (packageName.length() > 0) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+
+            out.println("/**");
+            out.println(" * Field accessor table for " + typeName + ".");
+            out.println(" * Generated by " + getClass().getName() + ". Do not edit.");
+            out.println(" */");
+            out.println("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })");
+            out.println("public final class " + simpleName + " implements " + FieldAccessorTable.class.getName() + " {");
+            out.println();
+
+            out.println("    public int indexOf(String fieldName) {");
+            out.println("        switch (fieldName) {");
+            for (int i = 0; i < fields.size(); i++) {
+                out.println("        case \"" + fields.get(i).getSimpleName() + "\":");
+                out.println("            return " + i + ";");
+            }
+            out.println("        default:");
+            out.println("            return -1;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    public Object get(Object object, int index) {");
+            out.println("        " + typeName + " target = (" + typeName + ") object;");
+            out.println("        switch (index) {");
+            for (int i = 0; i < fields.size(); i++) {
+                out.println("        case " + i + ":");
+                out.println("            return " + fieldRef(typeName, fields.get(i)) + ";");
+            }
+            out.println("        default:");
+            out.println("            throw new IndexOutOfBoundsException(String.valueOf(index));");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    public boolean set(Object object, int index, Object value) {");
+            out.println("        " + typeName + " target = (" + typeName + ") object;");
+            out.println("        switch (index) {");
+            for (int i = 0; i < fields.size(); i++) {
+
+                VariableElement field = fields.get(i);
+
+                if (field.getModifiers().contains(Modifier.FINAL)) {
+                    continue;
+                }
+
+                TypeMirror fieldType = field.asType();
+                String valueType;
+                String nullCheck;
+
+                if (fieldType.getKind().isPrimitive()) {
+                    // Only exact box types are handled here; widening
+                    // conversions are left to reflection.
+                    valueType = processingEnv.getTypeUtils().boxedClass((PrimitiveType) fieldType).getQualifiedName().toString();
+                    nullCheck = "";
+                } else {
+                    valueType = processingEnv.getTypeUtils().erasure(fieldType).toString();
+                    nullCheck = "value == null || ";
+                }
+
+                out.println("        case " + i + ":");
+                out.println("            if (" + nullCheck + "value instanceof " + valueType + ") {");
+                out.println("                " + fieldRef(typeName, field) + " = (" + valueType + ") value;");
+                out.println("                return true;");
+                out.println("            }");
+                out.println("            return false;");
+            }
+            out.println("        default:");
+            out.println("            return false;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("}");
+
+        } finally {
+            out.close();
+        }
+    }
+
+    private String fieldRef(String typeName, VariableElement field) {
+        if (field.getModifiers().contains(Modifier.STATIC)) {
+            return typeName + "." + field.getSimpleName();
+        } else {
+            return "target." + field.getSimpleName();
+        }
+    }
+
+}
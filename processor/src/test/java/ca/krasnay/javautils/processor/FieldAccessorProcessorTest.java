@@ -0,0 +1,122 @@
+package ca.krasnay.javautils.processor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import ca.krasnay.javautils.FieldAccessorTable;
+import ca.krasnay.javautils.IOUtils;
+import ca.krasnay.javautils.ReflectionUtils;
+import junit.framework.TestCase;
+
+public class FieldAccessorProcessorTest extends TestCase {
+
+    private static final String SOURCE =
+            "package sample;\n" +
+            "public class Base extends other.Other {\n" +
+            "    protected String name;\n" +
+            "    int hidden;\n" +
+            "}\n";
+
+    private static final String SUBCLASS_SOURCE =
+            "package sample;\n" +
+            "@ca.krasnay.javautils.GenerateFieldAccessors\n" +
+            "public class Sample extends Base {\n" +
+            "    int count;\n" +
+            "    public java.util.List<String> tags;\n" +
+            "    private String hidden;\n" +
+            "    final long id = 7;\n" +
+            "    static double rate;\n" +
+            "    Secret secret;\n" +
+            "    Hidden[] others;\n" +
+            "    private static class Secret {\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String OTHER_SOURCE =
+            "package other;\n" +
+            "public class Other {\n" +
+            "    protected static class Hidden {\n" +
+            "    }\n" +
+            "}\n";
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("processor", "");
+        dir.delete();
+        new File(dir, "sample").mkdirs();
+        new File(dir, "other").mkdirs();
+        write(new File(dir, "other/Other.java"), OTHER_SOURCE);
+        write(new File(dir, "sample/Base.java"), SOURCE);
+        write(new File(dir, "sample/Sample.java"), SUBCLASS_SOURCE);
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), IOUtils.UTF_8);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void testGeneratedTable() throws Exception {
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", dir.getPath()),
+                null,
+                fileManager.getJavaFileObjects(new File(dir, "sample/Base.java"), new File(dir, "sample/Sample.java"), new File(dir, "other/Other.java")));
+        task.setProcessors(Arrays.asList(new FieldAccessorProcessor()));
+
+        assertTrue("Compilation failed", task.call());
+        fileManager.close();
+
+        ClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+        Class<?> sampleClass = loader.loadClass("sample.Sample");
+        FieldAccessorTable table = (FieldAccessorTable) loader.loadClass("sample.Sample" + FieldAccessorTable.SUFFIX)
+                .getDeclaredConstructor().newInstance();
+
+        assertTrue(table.indexOf("count") >= 0);
+        assertTrue(table.indexOf("tags") >= 0);
+        assertTrue(table.indexOf("id") >= 0);
+        assertTrue(table.indexOf("rate") >= 0);
+        assertTrue(table.indexOf("name") >= 0);
+        assertEquals(-1, table.indexOf("hidden"));
+        assertEquals(-1, table.indexOf("nope"));
+
+        // Fields whose types the table can't name are left to reflection
+        assertEquals(-1, table.indexOf("secret"));
+        assertEquals(-1, table.indexOf("others"));
+
+        Object sample = sampleClass.getDeclaredConstructor().newInstance();
+
+        assertTrue(table.set(sample, table.indexOf("count"), 3));
+        assertFalse(table.set(sample, table.indexOf("count"), (short) 3));
+        assertFalse(table.set(sample, table.indexOf("id"), 8L));
+        assertTrue(table.set(sample, table.indexOf("tags"), null));
+        assertFalse(table.set(sample, table.indexOf("tags"), "x"));
+
+        ReflectionUtils.setFieldValue(sample, "name", "foo");
+        ReflectionUtils.setFieldValue(sample, "hidden", "bar");
+        ReflectionUtils.setFieldValue(sample, "count", (short) 4);
+
+        assertEquals("foo", table.get(sample, table.indexOf("name")));
+        assertEquals(4, ReflectionUtils.getFieldValue(sample, "count"));
+        assertEquals(7L, ReflectionUtils.getFieldValue(sample, "id"));
+        assertEquals("bar", ReflectionUtils.getFieldValue(sample, "hidden"));
+    }
+
+}
@@ -0,0 +1,59 @@
+package ca.krasnay.javautils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted for each call to ObjectUtils.cloneSerializable
+ * or cloneAll. The event's duration is the time taken by the clone.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@Name("ca.krasnay.javautils.Clone")
+@Label("Serialization Clone")
+@Category({ "Java Utilities", "Cloning" })
+@Description("Objects cloned via serialization by ObjectUtils")
+final class CloneEvent extends jdk.jfr.Event {
+
+    /**
+     * Type of this event, checked before an event is allocated.
+     */
+    private static final EventType TYPE = EventType.getEventType(CloneEvent.class);
+
+    @Label("Class")
+    @Description("Class of the object cloned, or of the first object in a batch")
+    Class<?> objectClass;
+
+    @Label("Object Count")
+    int objectCount;
+
+    @Label("Serialized Size")
+    @DataAmount
+    long serializedSize;
+
+    /**
+     * Returns a started event, or null if the event is not enabled, in which
+     * case nothing is allocated.
+     */
+    static CloneEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        CloneEvent event = new CloneEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(Class<?> objectClass, int objectCount, long serializedSize) {
+        if (shouldCommit()) {
+            this.objectClass = objectClass;
+            this.objectCount = objectCount;
+            this.serializedSize = serializedSize;
+            commit();
+        }
+    }
+}
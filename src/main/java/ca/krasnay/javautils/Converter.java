@@ -0,0 +1,19 @@
+package ca.krasnay.javautils;
+
+/**
+ * Converts values of one type to another, for example from the strings in a
+ * configuration file to the types of the fields they are bound to. See
+ * {@link ConverterRegistry}.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public interface Converter<S, T> {
+
+    /**
+     * Converts the given value, which is never null. Throws an
+     * IllegalArgumentException (e.g. NumberFormatException) if the value
+     * cannot be converted.
+     */
+    T convert(S value);
+
+}
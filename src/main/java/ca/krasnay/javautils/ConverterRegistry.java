@@ -0,0 +1,234 @@
+package ca.krasnay.javautils;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of {@link Converter}s used to coerce values to the types of the fields
+ * they are assigned to, e.g. by
+ * {@link ReflectionUtils#setFieldValue(Object, String, Object, ConverterRegistry)}.
+ *
+ * A new registry can convert strings to the primitive types and their
+ * wrappers, BigDecimal, BigInteger, Duration (in ISO-8601 format, e.g.
+ * "PT30S") and any enum. Further converters can be added with
+ * {@link #register(Class, Class, Converter)}. A converter registered for a
+ * source type is also used for its subclasses and implementations.
+ *
+ * The converter for each pair of source and target types is looked up once
+ * and cached. Strings are converted to primitive fields without boxing unless
+ * the built-in converter has been replaced. Registries are thread-safe.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public class ConverterRegistry {
+
+    /**
+     * Converts a value and writes it into a field.
+     */
+    private interface FieldWriter {
+        void write(Field field, Object target, Object value) throws IllegalAccessException;
+    }
+
+    /**
+     * Writers that parse a string straight into a primitive field.
+     */
+    private static final Map<Class<?>, FieldWriter> STRING_TO_PRIMITIVE = new HashMap<Class<?>, FieldWriter>();
+
+    static {
+
+        STRING_TO_PRIMITIVE.put(boolean.class, (f, o, v) -> f.setBoolean(o, toBoolean((String) v)));
+        STRING_TO_PRIMITIVE.put(byte.class, (f, o, v) -> f.setByte(o, Byte.parseByte(((String) v).trim())));
+        STRING_TO_PRIMITIVE.put(char.class, (f, o, v) -> f.setChar(o, toChar((String) v)));
+        STRING_TO_PRIMITIVE.put(short.class, (f, o, v) -> f.setShort(o, Short.parseShort(((String) v).trim())));
+        STRING_TO_PRIMITIVE.put(int.class, (f, o, v) -> f.setInt(o, Integer.parseInt(((String) v).trim())));
+        STRING_TO_PRIMITIVE.put(long.class, (f, o, v) -> f.setLong(o, Long.parseLong(((String) v).trim())));
+        STRING_TO_PRIMITIVE.put(float.class, (f, o, v) -> f.setFloat(o, Float.parseFloat(((String) v).trim())));
+        STRING_TO_PRIMITIVE.put(double.class, (f, o, v) -> f.setDouble(o, Double.parseDouble(((String) v).trim())));
+    }
+
+    /**
+     * Parses "true" or "false", ignoring case and surrounding whitespace.
+     * Unlike Boolean.parseBoolean, anything else is rejected rather than
+     * taken to be false.
+     */
+    private static boolean toBoolean(String s) {
+        String trimmed = s.trim();
+        if (trimmed.equalsIgnoreCase("true")) {
+            return true;
+        } else if (trimmed.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Expected true or false, got \"" + s + "\"");
+    }
+
+    private static char toChar(String s) {
+        if (s.length() != 1) {
+            throw new IllegalArgumentException("Expected a single character, got \"" + s + "\"");
+        }
+        return s.charAt(0);
+    }
+
+    /**
+     * Registered converters, by source type then target type.
+     */
+    private final Map<Class<?>, Map<Class<?>, Converter<?, ?>>> converters = new ConcurrentHashMap<Class<?>, Map<Class<?>, Converter<?, ?>>>();
+
+    /**
+     * Built-in converters, so we can tell when one has been replaced.
+     */
+    private final Map<Class<?>, Converter<?, ?>> builtIns = new HashMap<Class<?>, Converter<?, ?>>();
+
+    /**
+     * Resolved writers, by source type then target type. Registering a
+     * converter replaces the whole map, so a writer resolved from the old
+     * converters can only be added to the old map, which is no longer used.
+     */
+    private volatile Map<Class<?>, Map<Class<?>, FieldWriter>> writers = new ConcurrentHashMap<Class<?>, Map<Class<?>, FieldWriter>>();
+
+    public ConverterRegistry() {
+        registerBuiltIn(Boolean.class, s -> toBoolean(s));
+        registerBuiltIn(Byte.class, s -> Byte.valueOf(s.trim()));
+        registerBuiltIn(Character.class, s -> toChar(s));
+        registerBuiltIn(Short.class, s -> Short.valueOf(s.trim()));
+        registerBuiltIn(Integer.class, s -> Integer.valueOf(s.trim()));
+        registerBuiltIn(Long.class, s -> Long.valueOf(s.trim()));
+        registerBuiltIn(Float.class, s -> Float.valueOf(s.trim()));
+        registerBuiltIn(Double.class, s -> Double.valueOf(s.trim()));
+        registerBuiltIn(BigDecimal.class, s -> new BigDecimal(s.trim()));
+        registerBuiltIn(BigInteger.class, s -> new BigInteger(s.trim()));
+        registerBuiltIn(Duration.class, s -> Duration.parse(s.trim()));
+    }
+
+    private <T> void registerBuiltIn(Class<T> targetType, Converter<String, T> converter) {
+        register(String.class, targetType, converter);
+        builtIns.put(targetType, converter);
+    }
+
+    /**
+     * Registers a converter, replacing any existing converter between the
+     * same two types. For a primitive target type, register the converter for
+     * the wrapper type.
+     */
+    public <S, T> void register(Class<S> sourceType, Class<T> targetType, Converter<? super S, ? extends T> converter) {
+
+        assert sourceType != null;
+        assert targetType != null;
+        assert converter != null;
+
+        converters.computeIfAbsent(sourceType, k -> new ConcurrentHashMap<Class<?>, Converter<?, ?>>())
+                .put(targetType, converter);
+
+        writers = new ConcurrentHashMap<Class<?>, Map<Class<?>, FieldWriter>>();
+    }
+
+    /**
+     * Converts a value to the given type, returning it unchanged if it is
+     * null or already an instance of the type. A primitive type is treated as
+     * its wrapper type, without any widening conversions.
+     *
+     * @throws IllegalArgumentException
+     *             if there is no converter for the value's type, or the
+     *             value cannot be converted.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T convert(Object value, Class<T> targetType) {
+
+        Class<?> boxType = ReflectionUtils.boxType(targetType);
+
+        if (value == null || boxType.isInstance(value)) {
+            return (T) value;
+        }
+
+        Converter<Object, ?> converter = findConverter(value.getClass(), boxType);
+
+        if (converter == null) {
+            throw noConverter(value.getClass(), targetType);
+        }
+
+        return (T) converter.convert(value);
+    }
+
+    /**
+     * Sets a field to the given value, converting it to the field's type if
+     * necessary.
+     */
+    void setField(Field field, Object target, Object value) throws IllegalAccessException {
+
+        Class<?> targetType = field.getType();
+
+        // Field.set handles unboxing and widening to primitives itself
+        if (value == null || (targetType.isPrimitive() ? ReflectionUtils.isPromotableFrom(targetType, value.getClass()) : targetType.isInstance(value))) {
+            field.set(target, value);
+            return;
+        }
+
+        final Class<?> sourceType = value.getClass();
+
+        FieldWriter writer = writers
+                .computeIfAbsent(sourceType, k -> new ConcurrentHashMap<Class<?>, FieldWriter>())
+                .computeIfAbsent(targetType, k -> resolveWriter(sourceType, targetType));
+
+        writer.write(field, target, value);
+    }
+
+    private FieldWriter resolveWriter(Class<?> sourceType, Class<?> targetType) {
+
+        Class<?> boxType = ReflectionUtils.boxType(targetType);
+        final Converter<Object, ?> converter = findConverter(sourceType, boxType);
+
+        if (converter == null) {
+            throw noConverter(sourceType, targetType);
+        }
+
+        if (sourceType == String.class && targetType.isPrimitive() && converter == builtIns.get(boxType)) {
+            return STRING_TO_PRIMITIVE.get(targetType);
+        }
+
+        return (f, o, v) -> f.set(o, converter.convert(v));
+    }
+
+    /**
+     * Finds the converter for the given types, searching the superclasses and
+     * interfaces of the source type if there's none for the type itself.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Converter<Object, ?> findConverter(Class<?> sourceType, final Class<?> targetType) {
+
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (Class<?> c = sourceType; c != null; c = c.getSuperclass()) {
+            types.add(c);
+        }
+        for (int i = 0; i < types.size(); i++) {
+            for (Class<?> iface : types.get(i).getInterfaces()) {
+                if (!types.contains(iface)) {
+                    types.add(iface);
+                }
+            }
+        }
+
+        for (Class<?> type : types) {
+            Map<Class<?>, Converter<?, ?>> map = converters.get(type);
+            if (map != null && map.get(targetType) != null) {
+                return (Converter<Object, ?>) map.get(targetType);
+            }
+        }
+
+        if (sourceType == String.class && targetType.isEnum()) {
+            return s -> Enum.valueOf((Class) targetType, ((String) s).trim());
+        }
+
+        return null;
+    }
+
+    private static IllegalArgumentException noConverter(Class<?> sourceType, Class<?> targetType) {
+        return new IllegalArgumentException(String.format("No converter from %s to %s", sourceType.getName(), targetType.getName()));
+    }
+
+}
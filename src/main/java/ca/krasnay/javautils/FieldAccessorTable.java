@@ -0,0 +1,39 @@
+package ca.krasnay.javautils;
+
+/**
+ * Direct, non-reflective access to the fields of a class. Implementations are
+ * generated at build time for classes annotated with
+ * {@link GenerateFieldAccessors}, and are named after the class with a
+ * {@link #SUFFIX} suffix, e.g. <code>com.example.Customer$$FieldAccessors</code>.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public interface FieldAccessorTable {
+
+    /**
+     * Suffix appended to the binary name of a class to form the name of its
+     * generated table.
+     */
+    String SUFFIX = "$$FieldAccessors";
+
+    /**
+     * Returns the index of the named field in this table, or -1 if the table
+     * has no accessor for it.
+     */
+    int indexOf(String fieldName);
+
+    /**
+     * Returns the value of the field at the given index in the given object.
+     */
+    Object get(Object object, int index);
+
+    /**
+     * Sets the value of the field at the given index in the given object.
+     * Returns false without changing the field if the table cannot set it,
+     * for example because the value is not exactly of the field's type and
+     * needs a widening conversion, or because the field is final. The caller
+     * should then fall back to reflection.
+     */
+    boolean set(Object object, int index, Object value);
+
+}
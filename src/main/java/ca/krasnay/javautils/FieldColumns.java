@@ -0,0 +1,108 @@
+package ca.krasnay.javautils;
+
+/**
+ * Field values extracted from a collection of objects by
+ * {@link ReflectionUtils#getFieldColumns(java.util.Collection, Class, String...)},
+ * stored as one array per field. Fields of type byte, char, short and int are
+ * stored in int arrays, long fields in long arrays, float and double fields in
+ * double arrays, and all other fields in Object arrays.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public final class FieldColumns {
+
+    private final String[] fieldNames;
+
+    private final Object[] columns;
+
+    private final int size;
+
+    FieldColumns(String[] fieldNames, Object[] columns, int size) {
+        this.fieldNames = fieldNames;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    /**
+     * Returns the column array for the given column index: an int[], long[],
+     * double[] or Object[].
+     */
+    public Object getColumn(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the values of a double column.
+     *
+     * @throws ClassCastException
+     *             if the column is not a double column.
+     */
+    public double[] getDoubles(int column) {
+        return (double[]) columns[column];
+    }
+
+    /**
+     * Returns the field name, possibly containing dots, of the given column.
+     */
+    public String getFieldName(int column) {
+        return fieldNames[column];
+    }
+
+    /**
+     * Returns the values of an int column.
+     *
+     * @throws ClassCastException
+     *             if the column is not an int column.
+     */
+    public int[] getInts(int column) {
+        return (int[]) columns[column];
+    }
+
+    /**
+     * Returns the values of a long column.
+     *
+     * @throws ClassCastException
+     *             if the column is not a long column.
+     */
+    public long[] getLongs(int column) {
+        return (long[]) columns[column];
+    }
+
+    /**
+     * Returns the values of an Object column.
+     *
+     * @throws ClassCastException
+     *             if the column is not an Object column.
+     */
+    public Object[] getObjects(int column) {
+        return (Object[]) columns[column];
+    }
+
+    /**
+     * Returns the index of the column for the given field name, or -1 if
+     * there is no such column.
+     */
+    public int indexOf(String fieldName) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(fieldName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of rows, i.e. the length of each column array.
+     */
+    public int size() {
+        return size;
+    }
+
+}
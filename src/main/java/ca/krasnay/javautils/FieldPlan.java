@@ -0,0 +1,198 @@
+package ca.krasnay.javautils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pre-computed list of the instance fields of a class, used by the
+ * reflection-based methods in ObjectUtils. Static, transient and synthetic
+ * fields are excluded. Fields are ordered with primitives first, then
+ * references, then arrays, so that comparisons can exit early on the
+ * cheapest differences.
+ *
+ * Building a plan walks the class hierarchy and makes each field accessible,
+ * so plans are built once per class and cached in a ClassValue, which does
+ * not prevent the class from being unloaded.
+ *
+ * Fields of classes in modules that are not open to this library, such as
+ * the JDK's own classes, cannot be made accessible. If any field of a class
+ * or its superclasses is such a field, the plan is marked as not accessible
+ * and has no fields, and callers use the class's own equals and hashCode
+ * methods instead.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+final class FieldPlan {
+
+    static final int BOOLEAN = 0;
+    static final int BYTE = 1;
+    static final int CHAR = 2;
+    static final int SHORT = 3;
+    static final int INT = 4;
+    static final int LONG = 5;
+    static final int FLOAT = 6;
+    static final int DOUBLE = 7;
+    static final int OBJECT = 8;
+    static final int ARRAY = 9;
+
+    private static final ClassValue<FieldPlan> PLANS = new ClassValue<FieldPlan>() {
+        @Override
+        protected FieldPlan computeValue(Class<?> type) {
+            return new FieldPlan(type);
+        }
+    };
+
+    /**
+     * Returns the plan for the given class, building it if necessary.
+     */
+    static FieldPlan forClass(Class<?> clazz) {
+        return PLANS.get(clazz);
+    }
+
+    /**
+     * Returns the kind constant for the given field type.
+     */
+    static int kindOf(Class<?> type) {
+        if (type == boolean.class) {
+            return BOOLEAN;
+        } else if (type == byte.class) {
+            return BYTE;
+        } else if (type == char.class) {
+            return CHAR;
+        } else if (type == short.class) {
+            return SHORT;
+        } else if (type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == float.class) {
+            return FLOAT;
+        } else if (type == double.class) {
+            return DOUBLE;
+        } else if (type.isArray()) {
+            return ARRAY;
+        } else {
+            return OBJECT;
+        }
+    }
+
+    final Field[] fields;
+
+    final int[] kinds;
+
+    /**
+     * False if some field could not be made accessible, in which case the
+     * plan has no fields.
+     */
+    final boolean accessible;
+
+    private FieldPlan(Class<?> clazz) {
+
+        // Bucket by kind so primitives come first, arrays last, while keeping
+        // declaration order within each bucket.
+        List<Field> primitives = new ArrayList<Field>();
+        List<Field> objects = new ArrayList<Field>();
+        List<Field> arrays = new ArrayList<Field>();
+        boolean accessible = true;
+
+        for (Field field : ReflectionUtils.getDeclaredFieldsInHierarchy(clazz)) {
+            int mod = field.getModifiers();
+            if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || field.isSynthetic()) {
+                continue;
+            }
+            if (!field.trySetAccessible()) {
+                accessible = false;
+                break;
+            }
+            int kind = kindOf(field.getType());
+            if (kind == ARRAY) {
+                arrays.add(field);
+            } else if (kind == OBJECT) {
+                objects.add(field);
+            } else {
+                primitives.add(field);
+            }
+        }
+
+        this.accessible = accessible;
+
+        List<Field> all = new ArrayList<Field>();
+        if (accessible) {
+            all.addAll(primitives);
+            all.addAll(objects);
+            all.addAll(arrays);
+        }
+
+        fields = all.toArray(new Field[all.size()]);
+        kinds = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            kinds[i] = kindOf(fields[i].getType());
+        }
+    }
+
+    /**
+     * Returns true if the given field has the same value in both objects.
+     * Primitive fields are compared without boxing, using the same semantics
+     * as Arrays.equals for floating point values. Reference fields are
+     * compared with ObjectUtils.equals.
+     */
+    boolean fieldEquals(int i, Object o1, Object o2) throws IllegalAccessException {
+
+        Field f = fields[i];
+
+        switch (kinds[i]) {
+        case BOOLEAN:
+            return f.getBoolean(o1) == f.getBoolean(o2);
+        case BYTE:
+            return f.getByte(o1) == f.getByte(o2);
+        case CHAR:
+            return f.getChar(o1) == f.getChar(o2);
+        case SHORT:
+            return f.getShort(o1) == f.getShort(o2);
+        case INT:
+            return f.getInt(o1) == f.getInt(o2);
+        case LONG:
+            return f.getLong(o1) == f.getLong(o2);
+        case FLOAT:
+            return Float.floatToIntBits(f.getFloat(o1)) == Float.floatToIntBits(f.getFloat(o2));
+        case DOUBLE:
+            return Double.doubleToLongBits(f.getDouble(o1)) == Double.doubleToLongBits(f.getDouble(o2));
+        default:
+            return ObjectUtils.equals(f.get(o1), f.get(o2));
+        }
+    }
+
+    /**
+     * Returns the hash code of the given field's value in the given object,
+     * consistent with {@link #fieldEquals(int, Object, Object)}.
+     */
+    int fieldHashCode(int i, Object o) throws IllegalAccessException {
+
+        Field f = fields[i];
+
+        switch (kinds[i]) {
+        case BOOLEAN:
+            return f.getBoolean(o) ? 1231 : 1237;
+        case BYTE:
+            return f.getByte(o);
+        case CHAR:
+            return f.getChar(o);
+        case SHORT:
+            return f.getShort(o);
+        case INT:
+            return f.getInt(o);
+        case LONG:
+            long l = f.getLong(o);
+            return (int) (l ^ (l >>> 32));
+        case FLOAT:
+            return Float.floatToIntBits(f.getFloat(o));
+        case DOUBLE:
+            long d = Double.doubleToLongBits(f.getDouble(o));
+            return (int) (d ^ (d >>> 32));
+        default:
+            return ObjectUtils.hashCode(f.get(o));
+        }
+    }
+}
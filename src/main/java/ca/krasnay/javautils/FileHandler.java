@@ -0,0 +1,19 @@
+package ca.krasnay.javautils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Receives the files found by {@link IOUtils#forEachFile(Path, int, FileHandler)}.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public interface FileHandler {
+
+    /**
+     * Called once for each file, possibly from several threads at once.
+     */
+    void handleFile(Path file, BasicFileAttributes attributes) throws IOException;
+
+}
@@ -0,0 +1,29 @@
+package ca.krasnay.javautils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which the javautils annotation processor should generate
+ * a {@link FieldAccessorTable}. When a table exists for a class,
+ * {@link ReflectionUtils#getFieldValue(Object, String)} and
+ * {@link ReflectionUtils#setFieldValue(Object, String, Object)} use it instead
+ * of looking up fields reflectively.
+ *
+ * The generated table can only access fields that are visible from the
+ * class's package, i.e. non-private fields declared in the class or in
+ * superclasses in the same package. Other fields are still accessed by
+ * reflection. Tables are looked up by exact class, so subclasses must be
+ * annotated separately.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateFieldAccessors {
+
+}
@@ -0,0 +1,380 @@
+package ca.krasnay.javautils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends records to a file durably, committing records from many threads
+ * together. Each call to append copies the record into a shared buffer and
+ * returns a future. A background thread writes the buffered records with a
+ * single write and forces them to disk with a single FileChannel.force, then
+ * completes the futures of all records in the batch. The cost of the force is
+ * therefore shared by every record written while the previous batch was
+ * being forced.
+ *
+ * Futures are completed on a second background thread, so stages that depend
+ * on them never run on the writer thread. Such stages may append, even when
+ * the buffer is full, and may close the appender.
+ *
+ * A batch is written once its first record has waited for the maximum
+ * latency, or once it reaches the maximum batch size, whichever comes first.
+ * A maximum latency of zero writes as soon as the previous batch is done,
+ * which still groups records that arrive during a force. If the buffer is
+ * full, append blocks until the current batch has been handed to the writer.
+ *
+ * If a write fails, the futures of the records in that batch complete
+ * exceptionally with the IOException; some of their bytes may nevertheless
+ * have reached the file.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public final class GroupCommitAppender implements Closeable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+
+    private final long maxLatencyNanos;
+
+    private final int maxBatchSize;
+
+    private final Thread writer;
+
+    /**
+     * Single thread on which the futures of written batches are completed.
+     */
+    private final ExecutorService completer;
+
+    private volatile Thread completerThread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a batch is started or filled, or the appender closed.
+     */
+    private final Condition batchReady = lock.newCondition();
+
+    /**
+     * Signalled when the pending batch is handed to the writer.
+     */
+    private final Condition bufferFree = lock.newCondition();
+
+    // Guarded by lock
+
+    private byte[] pending = new byte[INITIAL_BUFFER_SIZE];
+
+    private int pendingSize;
+
+    private List<CompletableFuture<Void>> pendingFutures = new ArrayList<CompletableFuture<Void>>();
+
+    private long batchStartNanos;
+
+    private boolean closed;
+
+    private long batchCount;
+
+    // Used only by the writer thread
+
+    private byte[] writing = new byte[INITIAL_BUFFER_SIZE];
+
+    private int writingSize;
+
+    private List<CompletableFuture<Void>> writingFutures = new ArrayList<CompletableFuture<Void>>();
+
+    /**
+     * Opens an appender on the given file, creating the file if necessary,
+     * with the default maximum batch size.
+     *
+     * @param file
+     *            File to which records are appended.
+     * @param maxLatency
+     *            Longest time a record waits for others to join its batch.
+     * @param unit
+     *            Unit of maxLatency.
+     */
+    public GroupCommitAppender(File file, long maxLatency, TimeUnit unit) {
+        this(file, maxLatency, unit, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Opens an appender on the given file, creating the file if necessary.
+     *
+     * @param file
+     *            File to which records are appended.
+     * @param maxLatency
+     *            Longest time a record waits for others to join its batch.
+     * @param unit
+     *            Unit of maxLatency.
+     * @param maxBatchSize
+     *            Number of bytes at which a batch is written without waiting
+     *            any longer. A single larger record is written as a batch of
+     *            its own.
+     */
+    public GroupCommitAppender(File file, long maxLatency, TimeUnit unit, int maxBatchSize) {
+
+        assert file != null;
+        assert unit != null;
+
+        if (maxLatency < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxLatency must not be negative and maxBatchSize must be positive");
+        }
+
+        try {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.maxLatencyNanos = unit.toNanos(maxLatency);
+        this.maxBatchSize = maxBatchSize;
+
+        final String threadName = getClass().getSimpleName() + "-" + file.getName();
+
+        this.completer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, threadName + "-completer");
+            t.setDaemon(true);
+            completerThread = t;
+            return t;
+        });
+
+        this.writer = new Thread(new Runnable() {
+            public void run() {
+                writeBatches();
+            }
+        }, threadName);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Appends a record, returning a future that completes when the record
+     * has been forced to disk.
+     *
+     * @throws IllegalStateException
+     *             if the appender has been closed.
+     */
+    public CompletableFuture<Void> append(byte[] record) {
+        return append(record, 0, record.length);
+    }
+
+    /**
+     * Appends part of an array as a record. The bytes are copied before this
+     * method returns, so the array may be reused.
+     *
+     * @throws IllegalStateException
+     *             if the appender has been closed.
+     */
+    public CompletableFuture<Void> append(byte[] bytes, int offset, int length) {
+
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + bytes.length);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        lock.lock();
+        try {
+
+            while (!closed && pendingSize > 0 && pendingSize + length > maxBatchSize) {
+                bufferFree.awaitUninterruptibly();
+            }
+
+            if (closed) {
+                throw new IllegalStateException("Appender is closed");
+            }
+
+            if (pendingSize + length > pending.length) {
+                byte[] grown = new byte[Math.max(pendingSize + length, Math.min(2 * pending.length, maxBatchSize))];
+                System.arraycopy(pending, 0, grown, 0, pendingSize);
+                pending = grown;
+            }
+
+            System.arraycopy(bytes, offset, pending, pendingSize, length);
+            pendingSize += length;
+
+            if (pendingFutures.isEmpty()) {
+                batchStartNanos = System.nanoTime();
+                batchReady.signal();
+            } else if (pendingSize >= maxBatchSize) {
+                batchReady.signal();
+            }
+
+            pendingFutures.add(future);
+
+        } finally {
+            lock.unlock();
+        }
+
+        return future;
+    }
+
+    /**
+     * Appends a record encoded in the given character set. See
+     * {@link #append(byte[])}.
+     */
+    public CompletableFuture<Void> append(CharSequence record, Charset charset) {
+        return append(record.toString().getBytes(charset));
+    }
+
+    /**
+     * Writes any pending records, waits for them to be forced and their
+     * futures completed, and closes the file. When called from a stage that
+     * depends on one of the futures, futures still waiting to be completed
+     * are completed after that stage returns. Calling close more than once
+     * has no effect.
+     */
+    public void close() {
+
+        lock.lock();
+        try {
+            closed = true;
+            batchReady.signalAll();
+            bufferFree.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        completer.shutdown();
+        if (Thread.currentThread() != completerThread) {
+            while (!completer.isTerminated()) {
+                try {
+                    completer.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the number of batches written so far. Comparing this with the
+     * number of records appended shows how well records are being grouped.
+     */
+    public long getBatchCount() {
+        lock.lock();
+        try {
+            return batchCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Body of the writer thread.
+     */
+    private void writeBatches() {
+
+        while (takeBatch()) {
+
+            Throwable failure = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(writing, 0, writingSize);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (Throwable t) {
+                failure = t;
+            }
+
+            final List<CompletableFuture<Void>> futures = writingFutures;
+            final Throwable t = failure;
+            writingFutures = new ArrayList<CompletableFuture<Void>>();
+
+            completer.execute(() -> {
+                for (CompletableFuture<Void> future : futures) {
+                    if (t == null) {
+                        future.complete(null);
+                    } else {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Waits until the pending batch is due, then swaps it with the writer's
+     * buffer.
+     *
+     * @return false if the appender is closed and there's nothing more to
+     *         write.
+     */
+    private boolean takeBatch() {
+
+        lock.lock();
+        try {
+
+            while (pendingFutures.isEmpty() && !closed) {
+                batchReady.awaitUninterruptibly();
+            }
+
+            if (pendingFutures.isEmpty()) {
+                return false;
+            }
+
+            long wait;
+            while (!closed && pendingSize < maxBatchSize
+                    && (wait = batchStartNanos + maxLatencyNanos - System.nanoTime()) > 0) {
+                try {
+                    batchReady.awaitNanos(wait);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+
+            byte[] buffer = writing;
+            writing = pending;
+            writingSize = pendingSize;
+            pending = buffer;
+            pendingSize = 0;
+
+            List<CompletableFuture<Void>> futures = writingFutures;
+            writingFutures = pendingFutures;
+            pendingFutures = futures;
+
+            batchCount++;
+            bufferFree.signalAll();
+
+            return true;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -5,6 +5,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -12,6 +13,26 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Utility methods for dealing with IO.
@@ -29,6 +50,48 @@ public class IOUtils {
 
     public static final int CHAR_BUFFER_SIZE = 4096;
 
+    // Constants for scanning eight bytes at a time within a long
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOWS = 0x7f7f7f7f7f7f7f7fL;
+    private static final long NEWLINES = '\n' * ONES;
+    private static final long RETURNS = '\r' * ONES;
+
+    /**
+     * Default number of files copied at once by
+     * {@link #copyTree(Path, Path)}. Solid-state disks reach their best
+     * throughput with many requests in flight, so this is well above the
+     * number of cores of a typical machine.
+     */
+    public static final int DEFAULT_TREE_PARALLELISM = 16;
+
+    /**
+     * Size of the per-thread buffers used to encode text in the write
+     * methods.
+     */
+    static final int WRITE_BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> writeBuffers = new ThreadLocal<byte[]>();
+
+    /**
+     * Destination of bytes written from the start of a buffer.
+     */
+    interface ByteSink {
+        void write(byte[] bytes, int length) throws IOException;
+    }
+
+    static ByteSink sink(final OutputStream out) {
+        return (bytes, length) -> out.write(bytes, 0, length);
+    }
+
+    static ByteSink sink(final WritableByteChannel channel) {
+        return (bytes, length) -> {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        };
+    }
+
     /**
      * Quietly loses the given closeable. Ignores null if passed, and catches
      * and ignores any IOException thrown by the close method.
@@ -47,7 +110,33 @@ public class IOUtils {
 
 
     /**
-     * Copies the entire contents of an input stream to an output stream.
+     * Returns the number of occurrences of a byte in the range from fromIndex
+     * (inclusive) to toIndex (exclusive) of an array.
+     */
+    public static int countOf(byte[] bytes, int fromIndex, int toIndex, byte b) {
+
+        checkRange(bytes.length, fromIndex, toIndex);
+
+        ByteBuffer words = littleEndian(bytes);
+        long pattern = (b & 0xffL) * ONES;
+        int count = 0;
+        int i = fromIndex;
+
+        for (; i + 8 <= toIndex; i += 8) {
+            count += Long.bitCount(zeroBytes(words.getLong(i) ^ pattern));
+        }
+        for (; i < toIndex; i++) {
+            if (bytes[i] == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies the entire contents of an input stream to an output stream. To
+     * copy to several outputs at once, or compute digests while copying, use
+     * {@link TeeCopy}.
      *
      * @param in
      *            InputStream to be copied.
@@ -124,6 +213,229 @@ public class IOUtils {
         }
     }
 
+    /**
+     * Returns the index of the first occurrence of a byte in the range from
+     * fromIndex (inclusive) to toIndex (exclusive) of an array, or -1 if
+     * there is none. The range is scanned eight bytes at a time.
+     */
+    public static int indexOf(byte[] bytes, int fromIndex, int toIndex, byte b) {
+        checkRange(bytes.length, fromIndex, toIndex);
+        long pattern = (b & 0xffL) * ONES;
+        return scan(littleEndian(bytes), fromIndex, toIndex, pattern, pattern);
+    }
+
+    /**
+     * Returns the index of the first line feed or carriage return in the
+     * range from fromIndex (inclusive) to toIndex (exclusive) of an array, or
+     * -1 if there is none. Suitable for ASCII-compatible encodings such as
+     * UTF-8 and ISO-8859-1.
+     */
+    public static int indexOfNewline(byte[] bytes, int fromIndex, int toIndex) {
+        checkRange(bytes.length, fromIndex, toIndex);
+        return scan(littleEndian(bytes), fromIndex, toIndex, NEWLINES, RETURNS);
+    }
+
+    /**
+     * Returns the index of the first line feed or carriage return between the
+     * buffer's position and its limit, or -1 if there is none. The index is
+     * relative to the start of the buffer, like the buffer's position. The
+     * buffer's position and byte order are not changed.
+     */
+    public static int indexOfNewline(ByteBuffer buffer) {
+        return scan(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), buffer.position(), buffer.limit(), NEWLINES, RETURNS);
+    }
+
+    private static void checkRange(int length, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > length || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex " + fromIndex + ", toIndex " + toIndex + ", length " + length);
+        }
+    }
+
+    private static ByteBuffer littleEndian(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns a word with the high bit set in each byte that is zero in the
+     * given word, and all other bits clear.
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOWS) + LOWS) | word | LOWS);
+    }
+
+    /**
+     * Returns the index of the first byte in the range that matches either
+     * of the two bytes repeated in the given patterns, or -1. The buffer must
+     * be little-endian, so that the lowest set bit of a match mask
+     * corresponds to the first matching byte.
+     */
+    private static int scan(ByteBuffer words, int fromIndex, int toIndex, long pattern1, long pattern2) {
+
+        int i = fromIndex;
+
+        for (; i + 8 <= toIndex; i += 8) {
+            long word = words.getLong(i);
+            long found = zeroBytes(word ^ pattern1) | zeroBytes(word ^ pattern2);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+
+        byte b1 = (byte) pattern1;
+        byte b2 = (byte) pattern2;
+        for (; i < toIndex; i++) {
+            byte b = words.get(i);
+            if (b == b1 || b == b2) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Recursively copies a directory to the given target directory, which is
+     * created if necessary, using {@link #DEFAULT_TREE_PARALLELISM} threads.
+     * See {@link #copyTree(Path, Path, int)}.
+     */
+    public static void copyTree(Path source, Path target) {
+        copyTree(source, target, DEFAULT_TREE_PARALLELISM);
+    }
+
+    /**
+     * Recursively copies a directory to the given target directory, which is
+     * created if necessary. Existing files are replaced, file attributes such
+     * as modification times are copied, and symbolic links are copied as
+     * links rather than followed.
+     *
+     * The tree is walked on the calling thread, which creates each target
+     * directory as it is reached, while the files are copied concurrently by
+     * a pool of the given number of threads using Files.copy, which uses the
+     * most efficient transfer the platform offers.
+     *
+     * @param parallelism
+     *            Number of files to copy at once.
+     */
+    public static void copyTree(final Path source, final Path target, int parallelism) {
+
+        walk(source, parallelism, new DirectoryHandler() {
+            public void handleDirectory(Path dir) throws IOException {
+                Files.createDirectories(resolve(source, target, dir));
+            }
+        }, new FileHandler() {
+            public void handleFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.copy(file, resolve(source, target, file),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            }
+        });
+    }
+
+    /**
+     * Returns the path under the target root corresponding to the given path
+     * under the source root. The relative path is converted via a string so
+     * that the roots may be on different file systems.
+     */
+    private static Path resolve(Path sourceRoot, Path targetRoot, Path path) {
+        Path relative = sourceRoot.relativize(path);
+        return relative.toString().length() == 0 ? targetRoot : targetRoot.resolve(relative.toString());
+    }
+
+    /**
+     * Calls the handler for each file in a directory tree, from a pool of the
+     * given number of threads. The tree is walked with Files.walkFileTree on
+     * the calling thread, which returns once all files have been handled.
+     * Symbolic links are passed to the handler rather than followed.
+     *
+     * If the walk or a handler fails, no further files are handed out, and
+     * once the files in progress are done, the first exception is re-thrown,
+     * wrapped in a RuntimeException if it is checked.
+     *
+     * @param parallelism
+     *            Maximum number of files handled at once.
+     */
+    public static void forEachFile(Path root, int parallelism, FileHandler handler) {
+        walk(root, parallelism, null, handler);
+    }
+
+    /**
+     * Called on the walking thread for each directory, before its contents.
+     */
+    private interface DirectoryHandler {
+        void handleDirectory(Path dir) throws IOException;
+    }
+
+    private static void walk(Path root, int parallelism, final DirectoryHandler directoryHandler, final FileHandler fileHandler) {
+
+        assert root != null;
+        assert fileHandler != null;
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+
+        // Limits the files queued ahead of the pool
+        final int maxQueued = parallelism * 4;
+        final Semaphore permits = new Semaphore(maxQueued);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "IOUtils-walk");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                    if (failure.get() != null) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (directoryHandler != null) {
+                        directoryHandler.handleDirectory(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                    if (failure.get() != null) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    permits.acquireUninterruptibly();
+                    executor.execute(() -> {
+                        try {
+                            // Skip files queued before another one failed
+                            if (failure.get() == null) {
+                                fileHandler.handleFile(file, attributes);
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        } finally {
+            permits.acquireUninterruptibly(maxQueued);
+            executor.shutdown();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
     /**
      * Loads the given resource as a string using the given encoding.
      *
@@ -226,4 +538,253 @@ public class IOUtils {
         return toString(in, UTF_8);
     }
 
+    /**
+     * Writes text to a file in the given character set, replacing the file
+     * if it exists. Characters that can't be encoded are written as the
+     * charset's replacement, usually '?'.
+     *
+     * @param s
+     *            Text to be written.
+     * @param file
+     *            File to be written.
+     * @param charset
+     *            Character set in which to encode the text.
+     */
+    public static void write(CharSequence s, File file, Charset charset) {
+
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            write(s, out, charset);
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * Writes text to an output stream in the given character set. The stream
+     * is not flushed or closed.
+     *
+     * UTF-8, US-ASCII and ISO-8859-1 are encoded by a dedicated loop rather
+     * than a CharsetEncoder, and all charsets are encoded into a buffer that
+     * is reused by later calls on the same thread, so no buffered writer is
+     * needed.
+     *
+     * @param s
+     *            Text to be written.
+     * @param out
+     *            Output stream to receive the text.
+     * @param charset
+     *            Character set in which to encode the text.
+     */
+    public static void write(CharSequence s, OutputStream out, Charset charset) {
+        write(s, charset, sink(out));
+    }
+
+    /**
+     * Writes text to a channel in the given character set. The channel is not
+     * closed. See {@link #write(CharSequence, OutputStream, Charset)}.
+     *
+     * @param s
+     *            Text to be written.
+     * @param channel
+     *            Channel to receive the text.
+     * @param charset
+     *            Character set in which to encode the text.
+     */
+    public static void write(CharSequence s, WritableByteChannel channel, Charset charset) {
+        write(s, charset, sink(channel));
+    }
+
+    private static void write(CharSequence s, Charset charset, ByteSink sink) {
+
+        assert s != null;
+        assert charset != null;
+
+        byte[] buffer = writeBuffers.get();
+        if (buffer == null) {
+            buffer = new byte[WRITE_BUFFER_SIZE];
+        } else {
+            writeBuffers.remove();
+        }
+
+        try {
+            if (charset.equals(StandardCharsets.UTF_8)) {
+                encodeUtf8(s, buffer, sink);
+            } else if (charset.equals(StandardCharsets.US_ASCII)) {
+                encodeSingleByte(s, 0x80, buffer, sink);
+            } else if (charset.equals(StandardCharsets.ISO_8859_1)) {
+                encodeSingleByte(s, 0x100, buffer, sink);
+            } else {
+                encode(s, charset, buffer, sink);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            writeBuffers.set(buffer);
+        }
+    }
+
+    /**
+     * Encodes text as UTF-8. Unpaired surrogates are written as '?', as
+     * String.getBytes does.
+     */
+    private static void encodeUtf8(CharSequence s, byte[] buffer, ByteSink sink) throws IOException {
+
+        int length = s.length();
+        int limit = buffer.length - 4;
+        int pos = 0;
+        int i = 0;
+
+        while (i < length) {
+
+            if (pos > limit) {
+                sink.write(buffer, pos);
+                pos = 0;
+            }
+
+            char c = s.charAt(i++);
+
+            if (c < 0x80) {
+
+                buffer[pos++] = (byte) c;
+
+                // Copy a run of ASCII without further checks for space
+                int end = Math.min(length, i + buffer.length - pos);
+                while (i < end && (c = s.charAt(i)) < 0x80) {
+                    buffer[pos++] = (byte) c;
+                    i++;
+                }
+
+            } else if (c < 0x800) {
+
+                buffer[pos++] = (byte) (0xc0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+
+            } else if (Character.isSurrogate(c)) {
+
+                if (Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(s.charAt(i))) {
+                    int cp = Character.toCodePoint(c, s.charAt(i++));
+                    buffer[pos++] = (byte) (0xf0 | (cp >> 18));
+                    buffer[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    buffer[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    buffer[pos++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    buffer[pos++] = '?';
+                }
+
+            } else {
+
+                buffer[pos++] = (byte) (0xe0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        if (pos > 0) {
+            sink.write(buffer, pos);
+        }
+    }
+
+    /**
+     * Encodes text in a charset where each of the first "range" characters is
+     * encoded as the byte of the same value, writing '?' for other
+     * characters.
+     */
+    private static void encodeSingleByte(CharSequence s, int range, byte[] buffer, ByteSink sink) throws IOException {
+
+        int length = s.length();
+        int pos = 0;
+
+        for (int i = 0; i < length; i++) {
+
+            if (pos == buffer.length) {
+                sink.write(buffer, pos);
+                pos = 0;
+            }
+
+            char c = s.charAt(i);
+
+            if (c < range) {
+                buffer[pos++] = (byte) c;
+            } else {
+                // A surrogate pair is a single unmappable character
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                }
+                buffer[pos++] = '?';
+            }
+        }
+
+        if (pos > 0) {
+            sink.write(buffer, pos);
+        }
+    }
+
+    /**
+     * Encodes text with the charset's encoder.
+     */
+    private static void encode(CharSequence s, Charset charset, byte[] buffer, ByteSink sink) throws IOException {
+
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        CharBuffer in = CharBuffer.wrap(s);
+        ByteBuffer out = ByteBuffer.wrap(buffer);
+
+        boolean flushing = false;
+
+        while (true) {
+
+            CoderResult result = flushing ? encoder.flush(out) : encoder.encode(in, out, true);
+
+            if (result.isOverflow()) {
+                sink.write(buffer, out.position());
+                out.clear();
+            } else if (result.isUnderflow()) {
+                if (flushing) {
+                    break;
+                }
+                flushing = true;
+            } else {
+                result.throwException();
+            }
+        }
+
+        if (out.position() > 0) {
+            sink.write(buffer, out.position());
+        }
+    }
+
+    /**
+     * Writes text to a file using UTF-8 character encoding, replacing the
+     * file if it exists.
+     *
+     * @param s
+     *            Text to be written.
+     * @param file
+     *            File to be written.
+     */
+    public static void writeUtf8(CharSequence s, File file) {
+        write(s, file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes text to an output stream using UTF-8 character encoding. The
+     * stream is not flushed or closed.
+     *
+     * @param s
+     *            Text to be written.
+     * @param out
+     *            Output stream to receive the text.
+     */
+    public static void writeUtf8(CharSequence s, OutputStream out) {
+        write(s, out, StandardCharsets.UTF_8);
+    }
+
 }
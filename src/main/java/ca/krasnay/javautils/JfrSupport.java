@@ -0,0 +1,29 @@
+package ca.krasnay.javautils;
+
+/**
+ * Checks whether the Java Flight Recorder event API is available, so that the
+ * event classes in this package are only loaded on JVMs that have it, e.g.
+ * not on runtimes built without the jdk.jfr module. Code that emits events
+ * checks {@link #AVAILABLE} first, then asks the event type whether it is
+ * enabled before creating an event, which is practically free when it isn't.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+final class JfrSupport {
+
+    static final boolean AVAILABLE;
+
+    static {
+        boolean available;
+        try {
+            Class.forName("jdk.jfr.Event");
+            available = true;
+        } catch (Throwable t) {
+            available = false;
+        }
+        AVAILABLE = available;
+    }
+
+    private JfrSupport() {
+    }
+}
@@ -0,0 +1,468 @@
+package ca.krasnay.javautils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Index of the line offsets of a text file, for reading arbitrary lines of a
+ * large file without reading everything before them.
+ *
+ * The index is built in one pass over the file, and records the offset of
+ * every nth line in a long array, n being the index's interval. Reading line
+ * N then takes one positioned read starting at the nearest recorded line
+ * before N. A larger interval makes the index smaller, at the cost of
+ * reading past more lines on each lookup.
+ *
+ * Lines end with a line feed, optionally preceded by a carriage return,
+ * which is not included in the line read. The file must be in an
+ * ASCII-compatible encoding such as UTF-8 or ISO-8859-1.
+ *
+ * The index can be saved beside the file, with {@link #INDEX_SUFFIX} added to
+ * its name, and {@link #open(File)} picks it up again. When the file grows,
+ * {@link #update()} indexes just the new part. If the file has instead been
+ * truncated or replaced, as detected by its length and a checksum of its
+ * first bytes, the whole file is indexed again.
+ *
+ * The index keeps the file open until closed. Its methods are synchronized,
+ * so it may be shared between threads.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public final class LineIndex implements Closeable {
+
+    public static final int DEFAULT_INTERVAL = 16;
+
+    public static final String INDEX_SUFFIX = ".lines";
+
+    private static final int MAGIC = 0x4c494458;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Number of leading bytes checksummed to recognize the file.
+     */
+    private static final int HEAD_SIZE = 4096;
+
+    private static final int READ_BUFFER_SIZE = 65536;
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final int interval;
+
+    /**
+     * Offsets of lines 0, interval, 2 * interval, etc.
+     */
+    private long[] checkpoints = new long[16];
+
+    private int checkpointCount;
+
+    /**
+     * Number of line feeds found so far.
+     */
+    private long newlines;
+
+    /**
+     * Offset just after the last line feed found, i.e. the start of the
+     * last, possibly incomplete, line.
+     */
+    private long lastLineStart;
+
+    /**
+     * Number of bytes of the file indexed so far.
+     */
+    private long indexedLength;
+
+    private int headLength;
+
+    private long headChecksum;
+
+    private LineIndex(File file, int interval) {
+
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+
+        this.file = file;
+        this.interval = interval;
+
+        try {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        reset();
+    }
+
+    /**
+     * Builds an index of the given file with the default interval.
+     */
+    public static LineIndex build(File file) {
+        return build(file, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Builds an index of the given file, recording the offset of every
+     * interval'th line.
+     */
+    public static LineIndex build(File file, int interval) {
+        LineIndex index = new LineIndex(file, interval);
+        index.update();
+        return index;
+    }
+
+    /**
+     * Opens the index saved beside the given file, bringing it up to date
+     * with any lines added since it was saved, or builds a new index if
+     * there is no saved index or it can't be read or is inconsistent. The
+     * index is not saved again; call {@link #save()} for that.
+     */
+    public static LineIndex open(File file) {
+
+        File indexFile = indexFileFor(file);
+
+        if (indexFile.isFile()) {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+                try {
+                    int interval;
+                    if (in.readInt() == MAGIC && in.readInt() == VERSION && (interval = in.readInt()) > 0) {
+                        LineIndex index = new LineIndex(file, interval);
+                        boolean valid;
+                        try {
+                            valid = index.read(in);
+                        } catch (IOException e) {
+                            index.close();
+                            throw e;
+                        }
+                        if (valid) {
+                            index.update();
+                            return index;
+                        }
+                        index.close();
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // Fall through and rebuild
+            }
+        }
+
+        return build(file);
+    }
+
+    /**
+     * Returns the file in which the index of the given file is saved.
+     */
+    public static File indexFileFor(File file) {
+        return new File(file.getPath() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Reads the index saved by {@link #save()}, after its interval. Returns
+     * false if the values read are inconsistent, e.g. because the saved
+     * index is corrupt, in which case the index must be rebuilt.
+     */
+    private boolean read(DataInputStream in) throws IOException {
+
+        newlines = in.readLong();
+        lastLineStart = in.readLong();
+        indexedLength = in.readLong();
+        headLength = in.readInt();
+        headChecksum = in.readLong();
+        checkpointCount = in.readInt();
+
+        // Checking the lengths against the file also bounds the number of
+        // checkpoints before their array is allocated
+        if (indexedLength > channel.size() || newlines < 0 || newlines > indexedLength
+                || lastLineStart < 0 || lastLineStart > indexedLength
+                || headLength < 0 || headLength > HEAD_SIZE || headLength > indexedLength
+                || checkpointCount != newlines / interval + 1) {
+            return false;
+        }
+
+        checkpoints = new long[Math.max(16, checkpointCount)];
+        for (int i = 0; i < checkpointCount; i++) {
+            checkpoints[i] = in.readLong();
+            if (i == 0 ? checkpoints[i] != 0 : checkpoints[i] <= checkpoints[i - 1] || checkpoints[i] > lastLineStart) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void reset() {
+        checkpoints[0] = 0;
+        checkpointCount = 1;
+        newlines = 0;
+        lastLineStart = 0;
+        indexedLength = 0;
+        headLength = 0;
+        headChecksum = 0;
+    }
+
+    /**
+     * Closes the file.
+     */
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the number of lines indexed. A final line without a line feed
+     * is counted.
+     */
+    public synchronized long getLineCount() {
+        return newlines + (indexedLength > lastLineStart ? 1 : 0);
+    }
+
+    /**
+     * Returns the given line, counting from zero, decoded as UTF-8.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if there is no such line.
+     */
+    public String readLine(long line) {
+        return readLines(line, 1, StandardCharsets.UTF_8).get(0);
+    }
+
+    /**
+     * Returns up to count lines starting at the given line, counting from
+     * zero, decoded as UTF-8. Fewer lines are returned if the index ends
+     * first.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the first line does not exist.
+     */
+    public List<String> readLines(long first, int count) {
+        return readLines(first, count, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns up to count lines starting at the given line, counting from
+     * zero, decoded with the given charset. Fewer lines are returned if the
+     * index ends first.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the first line does not exist.
+     */
+    public synchronized List<String> readLines(long first, int count, Charset charset) {
+
+        long lineCount = getLineCount();
+
+        if (first < 0 || first >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + first + " of " + lineCount);
+        }
+
+        count = (int) Math.min(count, lineCount - first);
+
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> lines = new ArrayList<String>(count);
+        long position = checkpoints[(int) (first / interval)];
+        int skip = (int) (first % interval);
+
+        // Bytes of the line being read that were in previous reads
+        byte[] partial = new byte[0];
+        int partialLength = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+
+        try {
+            while (lines.size() < count && position < indexedLength) {
+
+                buffer.clear();
+                buffer.limit((int) Math.min(bytes.length, indexedLength - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+
+                int start = 0;
+                while (lines.size() < count) {
+
+                    int newline = IOUtils.indexOf(bytes, start, read, (byte) '\n');
+
+                    if (newline < 0) {
+                        if (skip == 0) {
+                            if (partialLength + read - start > partial.length) {
+                                partial = Arrays.copyOf(partial, Math.max(2 * partial.length, partialLength + read - start));
+                            }
+                            System.arraycopy(bytes, start, partial, partialLength, read - start);
+                            partialLength += read - start;
+                        }
+                        break;
+                    }
+
+                    if (skip > 0) {
+                        skip--;
+                    } else if (partialLength > 0) {
+                        if (partialLength + newline - start > partial.length) {
+                            partial = Arrays.copyOf(partial, partialLength + newline - start);
+                        }
+                        System.arraycopy(bytes, start, partial, partialLength, newline - start);
+                        lines.add(decode(partial, 0, partialLength + newline - start, charset));
+                        partialLength = 0;
+                    } else {
+                        lines.add(decode(bytes, start, newline - start, charset));
+                    }
+
+                    start = newline + 1;
+                }
+
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // Final line without a line feed
+        if (lines.size() < count && skip == 0) {
+            lines.add(decode(partial, 0, partialLength, charset));
+        }
+
+        return lines;
+    }
+
+    private static String decode(byte[] bytes, int offset, int length, Charset charset) {
+        if (length > 0 && bytes[offset + length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, offset, length, charset);
+    }
+
+    /**
+     * Saves the index beside the file, replacing any previously saved index.
+     */
+    public synchronized void save() {
+
+        File indexFile = indexFileFor(file);
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(interval);
+                out.writeLong(newlines);
+                out.writeLong(lastLineStart);
+                out.writeLong(indexedLength);
+                out.writeInt(headLength);
+                out.writeLong(headChecksum);
+                out.writeInt(checkpointCount);
+                for (int i = 0; i < checkpointCount; i++) {
+                    out.writeLong(checkpoints[i]);
+                }
+            } finally {
+                out.close();
+            }
+
+            if (!tempFile.renameTo(indexFile)) {
+                indexFile.delete();
+                if (!tempFile.renameTo(indexFile)) {
+                    throw new IOException("Could not rename " + tempFile + " to " + indexFile);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Indexes any lines added to the file since the index was built or last
+     * updated. If the file is shorter than when last indexed, or its first
+     * bytes have changed, it is indexed again from the start.
+     */
+    public synchronized void update() {
+
+        try {
+            long size = channel.size();
+
+            if (size < indexedLength || (headLength > 0 && checksum(headLength) != headChecksum)) {
+                reset();
+            }
+
+            scan(size);
+
+            headLength = (int) Math.min(HEAD_SIZE, indexedLength);
+            headChecksum = checksum(headLength);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long checksum(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        return crc.getValue();
+    }
+
+    /**
+     * Scans the file from the indexed length to the given size.
+     */
+    private void scan(long size) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+
+        while (indexedLength < size) {
+
+            buffer.clear();
+            buffer.limit((int) Math.min(bytes.length, size - indexedLength));
+            int read = channel.read(buffer, indexedLength);
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = IOUtils.indexOf(bytes, 0, read, (byte) '\n'); i >= 0; i = IOUtils.indexOf(bytes, i + 1, read, (byte) '\n')) {
+                newlines++;
+                lastLineStart = indexedLength + i + 1;
+                if (newlines % interval == 0) {
+                    if (checkpointCount == checkpoints.length) {
+                        checkpoints = Arrays.copyOf(checkpoints, 2 * checkpointCount);
+                    }
+                    checkpoints[checkpointCount++] = lastLineStart;
+                }
+            }
+
+            indexedLength += read;
+        }
+    }
+
+}
@@ -19,4 +19,32 @@ public class MethodNotFoundException extends IllegalArgumentException {
         super(message, cause);
     }
 
+    /**
+     * Returns a new exception that does not capture a stack trace, as thrown
+     * by ReflectionUtils.invokeMethodByName when asked for a stackless
+     * exception.
+     */
+    static MethodNotFoundException stackless(String message) {
+        return new Stackless(message);
+    }
+
+    /**
+     * Subclass whose fillInStackTrace does nothing. A subclass is needed
+     * because the Throwable constructor calls fillInStackTrace before any
+     * field of this class could be set.
+     */
+    private static final class Stackless extends MethodNotFoundException {
+
+        private static final long serialVersionUID = 1L;
+
+        Stackless(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
 }
@@ -0,0 +1,237 @@
+package ca.krasnay.javautils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Walks two object graphs in parallel and records the paths of fields whose
+ * values differ. Used by {@link ObjectUtils#diff(Object, Object, boolean)}.
+ *
+ * Objects of JDK classes, enums and primitive arrays are compared with
+ * ObjectUtils.equals. Lists and Object arrays are compared element by
+ * element, and reported as a single change if any element differs. All other
+ * objects are walked field by field using the cached FieldPlan for their
+ * class.
+ *
+ * When constructed without a list of changes, the walker stops at the first
+ * difference, which is how list elements are compared.
+ *
+ * To handle cycles, all walkers of a diff share a map of the pairs of
+ * objects compared so far, keyed by identity, so an object that appears twice
+ * in the first graph is still compared against each of its counterparts in
+ * the second. A pair met again while it is still being walked, i.e. through
+ * a cycle, is assumed equal, and a pair already walked is not walked again.
+ * The one exception is a pair that a list element walker found to differ,
+ * but stopped walking at the first difference. A walker that records changes
+ * walks that pair again, so that all of its changes are reported.
+ *
+ * In parallel mode the map is a ConcurrentHashMap. Two threads that meet the
+ * same pair at once may then both walk it, or one may take it to be equal
+ * while the other is still walking it. The list element on the other thread
+ * is still found to differ, so the result is the same.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+final class ObjectDiff {
+
+    private final boolean parallel;
+
+    private final List<String> changes;
+
+    /**
+     * State of each pair of objects compared so far, shared by all walkers of
+     * a diff.
+     */
+    private final Map<Pair, State> visited;
+
+    private enum State {
+
+        /**
+         * Being walked, further up the stack or on another thread.
+         */
+        WALKING,
+
+        /**
+         * Walked, with no differences found.
+         */
+        EQUAL,
+
+        /**
+         * Walked completely, with differences found and recorded.
+         */
+        DIFFERENT,
+
+        /**
+         * Found to differ by a walker that stopped at the first difference.
+         */
+        DIFFERENT_PARTIAL
+    }
+
+    /**
+     * Pair of objects compared by identity.
+     */
+    private static final class Pair {
+
+        private final Object a;
+
+        private final Object b;
+
+        Pair(Object a, Object b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pair && ((Pair) o).a == a && ((Pair) o).b == b;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(a) + System.identityHashCode(b);
+        }
+    }
+
+    private ObjectDiff(boolean parallel, List<String> changes, Map<Pair, State> visited) {
+        this.parallel = parallel;
+        this.changes = changes;
+        this.visited = visited;
+    }
+
+    /**
+     * Returns the paths of all changed fields between the two objects.
+     */
+    static List<String> diff(Object before, Object after, boolean parallel) {
+        Map<Pair, State> visited = parallel ? new ConcurrentHashMap<Pair, State>() : new HashMap<Pair, State>();
+        ObjectDiff d = new ObjectDiff(parallel, new ArrayList<String>(), visited);
+        d.compare("", before, after);
+        return d.changes;
+    }
+
+    /**
+     * Returns true if the given class is compared by its equals method rather
+     * than walked field by field.
+     */
+    private static boolean isValueType(Class<?> c) {
+        if (c.isArray() || c.isEnum()) {
+            return true;
+        }
+        String name = c.getName();
+        return name.startsWith("java.") || name.startsWith("javax.");
+    }
+
+    private String childPath(String path, String name) {
+        if (changes == null) {
+            return null;
+        } else if (path.length() == 0) {
+            return name;
+        } else {
+            return path + "." + name;
+        }
+    }
+
+    private boolean changed(String path) {
+        if (changes != null) {
+            changes.add(path);
+        }
+        return true;
+    }
+
+    /**
+     * Compares two values, recording any changes found at or below the given
+     * path. Returns true if there was any change.
+     */
+    private boolean compare(String path, Object a, Object b) {
+
+        if (a == b) {
+            return false;
+        } else if (a == null || b == null || a.getClass() != b.getClass()) {
+            return changed(path);
+        }
+
+        Class<?> c = a.getClass();
+
+        if (a instanceof List) {
+            return elementsDiffer((List<?>) a, (List<?>) b) && changed(path);
+        } else if (a instanceof Object[]) {
+            return elementsDiffer(Arrays.asList((Object[]) a), Arrays.asList((Object[]) b)) && changed(path);
+        }
+
+        FieldPlan plan = FieldPlan.forClass(c);
+
+        if (isValueType(c) || !plan.accessible) {
+            return !ObjectUtils.equals(a, b) && changed(path);
+        }
+
+        Pair pair = new Pair(a, b);
+        State state = visited.get(pair);
+
+        if (state == State.WALKING || state == State.EQUAL) {
+            return false;
+        } else if (state == State.DIFFERENT || (state == State.DIFFERENT_PARTIAL && changes == null)) {
+            return true;
+        }
+
+        visited.put(pair, State.WALKING);
+        boolean any = false;
+
+        try {
+            for (int i = 0; i < plan.fields.length; i++) {
+
+                Field field = plan.fields[i];
+                boolean fieldChanged;
+
+                if (plan.kinds[i] == FieldPlan.OBJECT || plan.kinds[i] == FieldPlan.ARRAY) {
+                    fieldChanged = compare(childPath(path, field.getName()), field.get(a), field.get(b));
+                } else {
+                    fieldChanged = !plan.fieldEquals(i, a, b) && changed(childPath(path, field.getName()));
+                }
+
+                if (fieldChanged) {
+                    any = true;
+                    if (changes == null) {
+                        break;
+                    }
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        visited.put(pair, !any ? State.EQUAL : changes == null ? State.DIFFERENT_PARTIAL : State.DIFFERENT);
+        return any;
+    }
+
+    private boolean elementsDiffer(final List<?> a, final List<?> b) {
+
+        int size = a.size();
+
+        if (size != b.size()) {
+            return true;
+        }
+
+        if (parallel && size >= ObjectUtils.PARALLEL_DIFF_THRESHOLD && a instanceof RandomAccess && b instanceof RandomAccess) {
+            return IntStream.range(0, size).parallel().anyMatch(i ->
+                    new ObjectDiff(false, null, visited).compare(null, a.get(i), b.get(i)));
+        }
+
+        ObjectDiff elementDiff = new ObjectDiff(parallel, null, visited);
+        Iterator<?> ia = a.iterator();
+        Iterator<?> ib = b.iterator();
+        while (ia.hasNext()) {
+            if (elementDiff.compare(null, ia.next(), ib.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
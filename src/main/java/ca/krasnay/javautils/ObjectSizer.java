@@ -0,0 +1,281 @@
+package ca.krasnay.javautils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the heap used by objects, as used by
+ * {@link ObjectUtils#shallowSizeOf(Object)} and
+ * {@link ObjectUtils#deepSizeOf(Object)}.
+ *
+ * Sizes are computed from the object header size, reference size and
+ * alignment of the running JVM, assuming fields are packed without gaps. The
+ * layout of each class is worked out once and cached.
+ *
+ * On Java 9 and later, fields of JDK classes usually can't be made
+ * accessible. Such objects are not walked field by field. Instead, strings
+ * are sized from their length, collections and maps are sized from their
+ * contents plus an estimate of their internal arrays and entries, and other
+ * objects are counted at their shallow size only.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+final class ObjectSizer {
+
+    static final boolean IS_64_BIT;
+    static final boolean COMPRESSED_OOPS;
+    static final boolean COMPRESSED_CLASS_POINTERS;
+    static final int ALIGNMENT;
+
+    static final int OBJECT_HEADER_SIZE;
+    static final int ARRAY_HEADER_SIZE;
+    static final int REFERENCE_SIZE;
+
+    static {
+
+        String model = System.getProperty("sun.arch.data.model", System.getProperty("os.arch", ""));
+        IS_64_BIT = model.contains("64");
+
+        COMPRESSED_OOPS = IS_64_BIT && "true".equals(vmOption("UseCompressedOops", "true"));
+        COMPRESSED_CLASS_POINTERS = IS_64_BIT && "true".equals(vmOption("UseCompressedClassPointers", String.valueOf(COMPRESSED_OOPS)));
+        ALIGNMENT = Integer.parseInt(vmOption("ObjectAlignmentInBytes", "8"));
+
+        REFERENCE_SIZE = !IS_64_BIT || COMPRESSED_OOPS ? 4 : 8;
+        OBJECT_HEADER_SIZE = !IS_64_BIT ? 8 : COMPRESSED_CLASS_POINTERS ? 12 : 16;
+        ARRAY_HEADER_SIZE = (int) align(OBJECT_HEADER_SIZE + 4);
+    }
+
+    /**
+     * Returns the value of a HotSpot VM option, or the given default if it's
+     * not available, e.g. on another JVM.
+     */
+    private static String vmOption(String name, String defaultValue) {
+        try {
+            return ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class)
+                    .getVMOption(name).getValue();
+        } catch (Throwable t) {
+            return defaultValue;
+        }
+    }
+
+    static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    static int sizeOfType(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        } else {
+            return REFERENCE_SIZE;
+        }
+    }
+
+    /**
+     * Size and reference fields of instances of a class.
+     */
+    private static final class Layout {
+
+        final long shallowSize;
+
+        final Field[] references;
+
+        /**
+         * True if some reference fields could not be made accessible.
+         */
+        final boolean opaque;
+
+        Layout(Class<?> clazz) {
+
+            long size = OBJECT_HEADER_SIZE;
+            List<Field> refs = new ArrayList<Field>();
+            boolean opaque = false;
+
+            for (Field field : ReflectionUtils.getDeclaredFieldsInHierarchy(clazz)) {
+
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+
+                size += sizeOfType(field.getType());
+
+                if (!field.getType().isPrimitive()) {
+                    try {
+                        field.setAccessible(true);
+                        refs.add(field);
+                    } catch (RuntimeException e) {
+                        opaque = true;
+                    }
+                }
+            }
+
+            this.shallowSize = align(size);
+            this.references = refs.toArray(new Field[refs.size()]);
+            this.opaque = opaque;
+        }
+    }
+
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            return new Layout(type);
+        }
+    };
+
+    /**
+     * Returns the size of the object itself, not including any objects it
+     * references.
+     */
+    static long shallowSizeOf(Object object) {
+
+        if (object == null) {
+            return 0;
+        }
+
+        Class<?> clazz = object.getClass();
+
+        if (clazz.isArray()) {
+            return align(ARRAY_HEADER_SIZE + (long) Array.getLength(object) * sizeOfType(clazz.getComponentType()));
+        } else {
+            return LAYOUTS.get(clazz).shallowSize;
+        }
+    }
+
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    private final int sampleSize;
+
+    /**
+     * @param sampleSize
+     *            Maximum number of elements of an array or collection to
+     *            walk, or zero to walk them all.
+     */
+    ObjectSizer(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Returns the total size of the given object and all objects reachable
+     * from it that have not already been counted by this sizer.
+     */
+    long deepSizeOf(Object root) {
+
+        long total = 0;
+        Deque<Object> stack = new ArrayDeque<Object>();
+        push(stack, root);
+
+        try {
+            while (!stack.isEmpty()) {
+
+                Object object = stack.pop();
+                Class<?> clazz = object.getClass();
+
+                total += shallowSizeOf(object);
+
+                if (clazz.isArray()) {
+                    if (!clazz.getComponentType().isPrimitive()) {
+                        total += elements(stack, (Object[]) object);
+                    }
+                    continue;
+                }
+
+                Layout layout = LAYOUTS.get(clazz);
+
+                if (layout.opaque) {
+                    total += opaqueContents(stack, object);
+                } else {
+                    for (Field field : layout.references) {
+                        push(stack, field.get(object));
+                    }
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        return total;
+    }
+
+    private void push(Deque<Object> stack, Object object) {
+        if (object != null && !(object instanceof Class) && !(object instanceof Enum) && visited.add(object)) {
+            stack.push(object);
+        }
+    }
+
+    /**
+     * Pushes the elements of an array onto the stack, or if sampling and the
+     * array is large, returns the estimated size of all elements based on a
+     * sample.
+     */
+    private long elements(Deque<Object> stack, Object[] array) {
+
+        if (sampleSize <= 0 || array.length <= sampleSize) {
+            for (Object element : array) {
+                push(stack, element);
+            }
+            return 0;
+        }
+
+        long sampled = 0;
+        int step = array.length / sampleSize;
+        for (int i = 0; i < sampleSize; i++) {
+            sampled += deepSizeOf(array[i * step]);
+        }
+        return sampled * array.length / sampleSize;
+    }
+
+    /**
+     * Estimates the contents of an object whose fields can't be walked.
+     */
+    private long opaqueContents(Deque<Object> stack, Object object) {
+
+        if (object instanceof String) {
+
+            // Java 9+ stores Latin-1 strings with one byte per char
+            String s = (String) object;
+            int bytesPerChar = 1;
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) > 0xff) {
+                    bytesPerChar = 2;
+                    break;
+                }
+            }
+            return align(ARRAY_HEADER_SIZE + (long) s.length() * bytesPerChar);
+
+        } else if (object instanceof Collection) {
+
+            Collection<?> c = (Collection<?>) object;
+            return align(ARRAY_HEADER_SIZE + (long) c.size() * REFERENCE_SIZE) + elements(stack, c.toArray());
+
+        } else if (object instanceof Map) {
+
+            // Assume a HashMap-like table plus one entry object per mapping,
+            // each with a hash and three references.
+            Map<?, ?> map = (Map<?, ?>) object;
+            int size = map.size();
+            long table = align(ARRAY_HEADER_SIZE + (long) Integer.highestOneBit(Math.max(1, size * 4 / 3) * 2 - 1) * REFERENCE_SIZE);
+            long entries = size * align(OBJECT_HEADER_SIZE + 4 + 3 * REFERENCE_SIZE);
+            return table + entries + elements(stack, map.keySet().toArray()) + elements(stack, map.values().toArray());
+
+        } else {
+            return 0;
+        }
+    }
+
+}
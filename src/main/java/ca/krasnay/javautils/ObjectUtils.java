@@ -7,7 +7,13 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * Utility methods applicable to Objects.
@@ -16,6 +22,96 @@ import java.util.Arrays;
  */
 public final class ObjectUtils {
 
+    /**
+     * Minimum size of a list or array for which {@link #diff(Object, Object, boolean)}
+     * compares elements in parallel.
+     */
+    public static final int PARALLEL_DIFF_THRESHOLD = 1000;
+
+    /**
+     * Minimum array length for which the toPrimitive and toObject methods
+     * convert elements in parallel.
+     */
+    public static final int PARALLEL_ARRAY_THRESHOLD = 65536;
+
+    private static final int ARRAY_CHUNK_SIZE = 16384;
+
+    /**
+     * Operation on a range of array indexes, from inclusive to exclusive.
+     */
+    interface RangeTask {
+        void run(int from, int to);
+    }
+
+    private static final Map<Class<?>, Integer> PRIMITIVE_ARRAY_KINDS = new IdentityHashMap<Class<?>, Integer>();
+
+    static {
+        PRIMITIVE_ARRAY_KINDS.put(boolean[].class, FieldPlan.BOOLEAN);
+        PRIMITIVE_ARRAY_KINDS.put(byte[].class, FieldPlan.BYTE);
+        PRIMITIVE_ARRAY_KINDS.put(char[].class, FieldPlan.CHAR);
+        PRIMITIVE_ARRAY_KINDS.put(short[].class, FieldPlan.SHORT);
+        PRIMITIVE_ARRAY_KINDS.put(int[].class, FieldPlan.INT);
+        PRIMITIVE_ARRAY_KINDS.put(long[].class, FieldPlan.LONG);
+        PRIMITIVE_ARRAY_KINDS.put(float[].class, FieldPlan.FLOAT);
+        PRIMITIVE_ARRAY_KINDS.put(double[].class, FieldPlan.DOUBLE);
+    }
+
+    /**
+     * ByteArrayOutputStream that writes into a caller-supplied buffer and can
+     * be read back without copying.
+     */
+    private static final class CloneOutputStream extends ByteArrayOutputStream {
+
+        CloneOutputStream(byte[] buffer) {
+            super(0);
+            buf = buffer;
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        ObjectInputStream toObjectInputStream() throws IOException {
+            return new ObjectInputStream(new ByteArrayInputStream(buf, 0, count));
+        }
+    }
+
+    /**
+     * Initial size of the per-thread buffer used by cloneSerializable.
+     */
+    private static final int CLONE_BUFFER_SIZE = 4096;
+
+    /**
+     * Buffers larger than this are discarded after use rather than kept for
+     * the next clone on the same thread.
+     */
+    private static final int MAX_RETAINED_CLONE_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Per-thread serialization buffers. Only plain byte arrays are stored
+     * here, so the thread local does not pin this class loader. The buffer is
+     * removed while in use, so a nested clone (e.g. from a writeObject method)
+     * gets its own.
+     */
+    private static final ThreadLocal<byte[]> cloneBuffers = new ThreadLocal<byte[]>();
+
+    private static CloneOutputStream acquireCloneStream() {
+        byte[] buffer = cloneBuffers.get();
+        if (buffer == null) {
+            buffer = new byte[CLONE_BUFFER_SIZE];
+        } else {
+            cloneBuffers.remove();
+        }
+        return new CloneOutputStream(buffer);
+    }
+
+    private static void releaseCloneStream(CloneOutputStream out) {
+        byte[] buffer = out.buffer();
+        if (buffer.length <= MAX_RETAINED_CLONE_BUFFER_SIZE) {
+            cloneBuffers.set(buffer);
+        }
+    }
+
     /**
      * Clones a Serializable object via serialization. The class being cloned
      * need not implement the Cloneable interface.
@@ -26,62 +122,375 @@ public final class ObjectUtils {
      *
      * This method was written to support unit tests, were we want to clone
      * objects to detect changes during a test.
+     *
+     * The object is serialized into a buffer that is reused by later calls on
+     * the same thread, and deserialized directly from that buffer without
+     * copying it. To clone many objects, {@link #cloneAll(Collection)} is
+     * faster still.
      */
     @SuppressWarnings("unchecked")
     public static <T extends Serializable> T cloneSerializable(T object) {
 
+        CloneEvent event = JfrSupport.AVAILABLE ? CloneEvent.start() : null;
+        CloneOutputStream out = acquireCloneStream();
+        try {
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(object);
+            oos.flush();
+            T clone = (T) out.toObjectInputStream().readObject();
+            if (event != null) {
+                event.finish(object == null ? null : object.getClass(), 1, out.size());
+            }
+            return clone;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        } finally {
+            releaseCloneStream(out);
+        }
+    }
+
+    /**
+     * Clones each object in a collection via serialization, returning the
+     * clones in iteration order. All objects are written to a single stream,
+     * so the stream header and each class descriptor are written and read
+     * only once for the whole batch.
+     *
+     * Because the objects share a stream, an object referenced from more than
+     * one item in the collection is cloned once, and the clones share it too,
+     * just as if the collection itself had been cloned.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> List<T> cloneAll(Collection<? extends T> objects) {
+
+        CloneEvent event = JfrSupport.AVAILABLE ? CloneEvent.start() : null;
+        CloneOutputStream out = acquireCloneStream();
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            new ObjectOutputStream(baos).writeObject(object);
-            return (T) new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())).readObject();
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            Class<?> firstClass = null;
+            for (T object : objects) {
+                if (firstClass == null && object != null) {
+                    firstClass = object.getClass();
+                }
+                oos.writeObject(object);
+            }
+            oos.flush();
+
+            int size = objects.size();
+            List<T> result = new ArrayList<T>(size);
+            ObjectInputStream ois = out.toObjectInputStream();
+            for (int i = 0; i < size; i++) {
+                result.add((T) ois.readObject());
+            }
+            if (event != null) {
+                event.finish(firstClass, size, out.size());
+            }
+            return result;
         } catch (IOException e) {
             throw new RuntimeException(e);
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
+        } finally {
+            releaseCloneStream(out);
         }
     }
 
+    /**
+     * Returns an estimate of the heap used by the given object and all objects
+     * reachable from it, e.g. to budget the memory used by a cache. Objects
+     * referenced more than once are counted once. Class objects and enum
+     * constants are not counted, since they are shared.
+     *
+     * The estimate accounts for the JVM's object header size, compressed
+     * references and object alignment, and uses per-class layouts that are
+     * computed once and cached. Fields of JDK classes that can't be accessed
+     * on Java 9 and later are estimated rather than walked; see
+     * {@link #shallowSizeOf(Object)}.
+     */
+    public static long deepSizeOf(Object object) {
+        return new ObjectSizer(0).deepSizeOf(object);
+    }
+
+    /**
+     * Estimates the heap used by an object graph as
+     * {@link #deepSizeOf(Object)}, but for arrays and collections of more than
+     * sampleSize elements, only walks sampleSize evenly spaced elements and
+     * extrapolates the size of the rest. This bounds the cost of sizing very
+     * large graphs, at the expense of accuracy.
+     *
+     * @throws IllegalArgumentException
+     *             if sampleSize is not positive.
+     */
+    public static long deepSizeOf(Object object, int sampleSize) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive: " + sampleSize);
+        }
+        return new ObjectSizer(sampleSize).deepSizeOf(object);
+    }
+
+    /**
+     * Compares two object graphs and returns the paths of the fields that
+     * differ, in the dotted notation accepted by
+     * {@link ReflectionUtils#getDeepFieldValue(Object, String)}, e.g.
+     * "customer.address.postalCode". An empty path means the two objects
+     * themselves differ, for example because one is null or they are of
+     * different classes.
+     *
+     * This method was written to compare snapshots taken with
+     * {@link #cloneSerializable(Serializable)}. Identical references are
+     * skipped without being walked, so comparing a snapshot to an object that
+     * shares most of its graph is cheap.
+     *
+     * Objects of JDK classes and enums are compared with
+     * {@link #equals(Object, Object)}. Lists and Object arrays are compared
+     * element by element and reported as a whole if any element differs.
+     * Other objects are compared field by field, ignoring static and
+     * transient fields.
+     */
+    public static List<String> diff(Object before, Object after) {
+        return diff(before, after, false);
+    }
+
+    /**
+     * Compares two object graphs as {@link #diff(Object, Object)}, optionally
+     * comparing the elements of lists and arrays with at least
+     * {@link #PARALLEL_DIFF_THRESHOLD} elements in parallel.
+     */
+    public static List<String> diff(Object before, Object after, boolean parallel) {
+        return ObjectDiff.diff(before, after, parallel);
+    }
+
     /**
      * Null-safe and array-enabled equals method. Returns true if both objects
      * are null. If both objects are arrays of the same type, compares using one
      * of the equals methods from the Arrays class, using deepEquals if they are
      * Object arrays. Otherwise, compares them using the first object's equals
      * method.
+     *
+     * This method is used for cache keys, so non-array objects go straight to
+     * their own equals method after a reference check, and arrays are
+     * dispatched on their class through a lookup table rather than testing
+     * each array type in turn.
      */
     public static boolean equals(Object o1, Object o2) {
 
-        if (o1 == null) {
-            return o2 == null;
-        } else if (o2 == null) {
+        if (o1 == o2) {
+            return true;
+        } else if (o1 == null || o2 == null) {
             return false;
-        } else if (o1 instanceof boolean[] && o2 instanceof boolean[]) {
+        }
+
+        Class<?> c1 = o1.getClass();
+
+        if (!c1.isArray()) {
+            return o1.equals(o2);
+        }
+
+        Class<?> c2 = o2.getClass();
+        int kind = arrayKind(c1);
+
+        if (c1 != c2 && (kind != FieldPlan.OBJECT || !(o2 instanceof Object[]))) {
+            return false;
+        }
+
+        switch (kind) {
+        case FieldPlan.BOOLEAN:
             return Arrays.equals((boolean[]) o1, (boolean[]) o2);
-        } else if (o1 instanceof char[] && o2 instanceof char[]) {
-            return Arrays.equals((char[]) o1, (char[]) o2);
-        } else if (o1 instanceof byte[] && o2 instanceof byte[]) {
+        case FieldPlan.BYTE:
             return Arrays.equals((byte[]) o1, (byte[]) o2);
-        } else if (o1 instanceof short[] && o2 instanceof short[]) {
+        case FieldPlan.CHAR:
+            return Arrays.equals((char[]) o1, (char[]) o2);
+        case FieldPlan.SHORT:
             return Arrays.equals((short[]) o1, (short[]) o2);
-        } else if (o1 instanceof int[] && o2 instanceof int[]) {
+        case FieldPlan.INT:
             return Arrays.equals((int[]) o1, (int[]) o2);
-        } else if (o1 instanceof long[] && o2 instanceof long[]) {
+        case FieldPlan.LONG:
             return Arrays.equals((long[]) o1, (long[]) o2);
-        } else if (o1 instanceof float[] && o2 instanceof float[]) {
+        case FieldPlan.FLOAT:
             return Arrays.equals((float[]) o1, (float[]) o2);
-        } else if (o1 instanceof double[] && o2 instanceof double[]) {
+        case FieldPlan.DOUBLE:
             return Arrays.equals((double[]) o1, (double[]) o2);
-        } else if (o1 instanceof Object[] && o2 instanceof Object[]) {
-            return Arrays.deepEquals((Object[]) o1, (Object[]) o2);
-        } else {
+        default:
+            return deepEquals((Object[]) o1, (Object[]) o2);
+        }
+
+    }
+
+    private static boolean deepEquals(Object[] a1, Object[] a2) {
+
+        if (a1.length != a2.length) {
+            return false;
+        }
+
+        for (int i = 0; i < a1.length; i++) {
+            if (!equals(a1[i], a2[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the FieldPlan kind constant for the elements of the given array
+     * class: one of the primitive kinds, or OBJECT for arrays of references.
+     */
+    static int arrayKind(Class<?> arrayClass) {
+        Integer kind = PRIMITIVE_ARRAY_KINDS.get(arrayClass);
+        return kind == null ? FieldPlan.OBJECT : kind;
+    }
+
+    /**
+     * Null-safe and array-enabled hashCode method, consistent with
+     * {@link #equals(Object, Object)}. Returns zero for null, hashes primitive
+     * arrays by content and Object arrays using {@link #deepHashCode(Object[])}.
+     * This allows array-valued keys to be used in hash-based collections, as
+     * long as they are wrapped in a key class that uses these methods.
+     */
+    public static int hashCode(Object o) {
+
+        if (o == null) {
+            return 0;
+        }
+
+        Class<?> c = o.getClass();
+
+        if (!c.isArray()) {
+            return o.hashCode();
+        }
+
+        switch (arrayKind(c)) {
+        case FieldPlan.BOOLEAN:
+            return Arrays.hashCode((boolean[]) o);
+        case FieldPlan.BYTE:
+            return Arrays.hashCode((byte[]) o);
+        case FieldPlan.CHAR:
+            return Arrays.hashCode((char[]) o);
+        case FieldPlan.SHORT:
+            return Arrays.hashCode((short[]) o);
+        case FieldPlan.INT:
+            return Arrays.hashCode((int[]) o);
+        case FieldPlan.LONG:
+            return Arrays.hashCode((long[]) o);
+        case FieldPlan.FLOAT:
+            return Arrays.hashCode((float[]) o);
+        case FieldPlan.DOUBLE:
+            return Arrays.hashCode((double[]) o);
+        default:
+            return deepHashCode((Object[]) o);
+        }
+    }
+
+    /**
+     * Returns a hash code based on the deep contents of the given array, with
+     * nested arrays hashed by content. Returns the same value as
+     * Arrays.deepHashCode, and is consistent with comparing arrays with
+     * {@link #equals(Object, Object)}.
+     */
+    public static int deepHashCode(Object[] array) {
+
+        if (array == null) {
+            return 0;
+        }
+
+        int result = 1;
+        for (Object element : array) {
+            result = 31 * result + hashCode(element);
+        }
+        return result;
+    }
+
+    /**
+     * Compares two objects field by field. Returns true if both objects are
+     * null, or if both are of exactly the same class and every non-static,
+     * non-transient field in the class hierarchy is equal. Field values are
+     * compared with {@link #equals(Object, Object)}, so array fields are
+     * compared by content. Arrays passed directly are likewise compared by
+     * content. Objects of classes whose fields can't be made accessible,
+     * such as JDK classes and their subclasses, are compared with their own
+     * equals method.
+     *
+     * The list of fields is computed once per class and cached, with
+     * primitive fields checked before reference and array fields so that
+     * unequal objects are usually rejected cheaply.
+     */
+    public static boolean reflectionEquals(Object o1, Object o2) {
+
+        if (o1 == o2) {
+            return true;
+        } else if (o1 == null || o2 == null) {
+            return false;
+        } else if (o1.getClass() != o2.getClass()) {
+            return false;
+        } else if (o1.getClass().isArray()) {
+            return equals(o1, o2);
+        }
+
+        FieldPlan plan = FieldPlan.forClass(o1.getClass());
+
+        if (!plan.accessible) {
             return o1.equals(o2);
         }
 
+        try {
+            for (int i = 0; i < plan.fields.length; i++) {
+                if (!plan.fieldEquals(i, o1, o2)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns a hash code computed from the same fields used by
+     * {@link #reflectionEquals(Object, Object)}. Returns zero for null, the
+     * result of {@link #hashCode(Object)} for arrays, and the object's own
+     * hashCode if its fields can't be made accessible.
+     */
+    public static int reflectionHashCode(Object o) {
+
+        if (o == null) {
+            return 0;
+        } else if (o.getClass().isArray()) {
+            return hashCode(o);
+        }
+
+        FieldPlan plan = FieldPlan.forClass(o.getClass());
+
+        if (!plan.accessible) {
+            return o.hashCode();
+        }
+
+        try {
+            int result = 1;
+            for (int i = 0; i < plan.fields.length; i++) {
+                result = 31 * result + plan.fieldHashCode(i, o);
+            }
+            return result;
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns an estimate of the heap used by the given object itself, not
+     * including the objects it references. Returns zero for null.
+     */
+    public static long shallowSizeOf(Object object) {
+        return ObjectSizer.shallowSizeOf(object);
     }
 
     /**
      * Method to help with array conversions. Say Object[] to Serializable[] if
      * all members of the first array are Serializable or vice versa
      *
+     * The copy is done with a single bulk array copy. If any element is not
+     * an instance of asClazz, an ArrayStoreException is thrown.
+     *
      * @param <T>
      * @param array
      *            array to be converted
@@ -90,13 +499,371 @@ public final class ObjectUtils {
      *
      * @return
      */
-    @SuppressWarnings("unchecked")
     public static <T, F> T[] repackageArray(F[] array, Class<T> asClazz) {
-        T[] objectArrayPayload = (T[]) Array.newInstance(asClazz, array.length);
-        for (int i = 0; i < array.length; i++) {
-            objectArrayPayload[i] = (T) array[i];
+        return repackageArray(array, asClazz, false);
+    }
+
+    /**
+     * Converts an array to an array of another component type, as
+     * {@link #repackageArray(Object[], Class)}. If validate is true, every
+     * element is checked before copying, and an IllegalArgumentException
+     * identifying the first offending element is thrown instead of an
+     * ArrayStoreException.
+     *
+     * @param array
+     *            array to be converted
+     * @param asClazz
+     *            type of array to be returned
+     * @param validate
+     *            whether to check the type of each element before copying
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, F> T[] repackageArray(F[] array, Class<T> asClazz, boolean validate) {
+
+        if (validate) {
+            for (int i = 0; i < array.length; i++) {
+                F element = array[i];
+                if (element != null && !asClazz.isInstance(element)) {
+                    throw new IllegalArgumentException(String.format("Element %d of type %s is not an instance of %s",
+                            i, element.getClass().getName(), asClazz.getName()));
+                }
+            }
+        }
+
+        Class<? extends T[]> arrayClass = (Class<? extends T[]>) Array.newInstance(asClazz, 0).getClass();
+        return Arrays.copyOf(array, array.length, arrayClass);
+    }
+
+    /**
+     * Splits the range [0, length) into chunks and runs the task on each,
+     * in parallel if length is at least PARALLEL_ARRAY_THRESHOLD.
+     */
+    private static void forEachRange(int length, RangeTask task) {
+        forEachRange(length, PARALLEL_ARRAY_THRESHOLD, ARRAY_CHUNK_SIZE, task);
+    }
+
+    /**
+     * Splits the range [0, length) into chunks of the given size and runs the
+     * task on each. If length is less than the threshold, the task is run
+     * once for the whole range on the calling thread; otherwise the chunks
+     * are run in parallel on the common fork-join pool.
+     */
+    static void forEachRange(final int length, int threshold, final int chunkSize, final RangeTask task) {
+
+        if (length < threshold) {
+            task.run(0, length);
+            return;
         }
-        return objectArrayPayload;
+
+        int chunks = (length + chunkSize - 1) / chunkSize;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * chunkSize;
+            task.run(from, Math.min(from + chunkSize, length));
+        });
+    }
+
+    /**
+     * Converts an array of Boolean to an array of boolean. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static boolean[] toPrimitive(final Boolean[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final boolean[] result = new boolean[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of boolean to an array of Boolean. Returns null if the
+     * array is null.
+     */
+    public static Boolean[] toObject(final boolean[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Boolean[] result = new Boolean[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of Byte to an array of byte. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static byte[] toPrimitive(final Byte[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final byte[] result = new byte[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of byte to an array of Byte. Returns null if the
+     * array is null.
+     */
+    public static Byte[] toObject(final byte[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Byte[] result = new Byte[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of Character to an array of char. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static char[] toPrimitive(final Character[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final char[] result = new char[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of char to an array of Character. Returns null if the
+     * array is null.
+     */
+    public static Character[] toObject(final char[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Character[] result = new Character[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of Short to an array of short. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static short[] toPrimitive(final Short[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final short[] result = new short[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of short to an array of Short. Returns null if the
+     * array is null.
+     */
+    public static Short[] toObject(final short[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Short[] result = new Short[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of Integer to an array of int. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static int[] toPrimitive(final Integer[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final int[] result = new int[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of int to an array of Integer. Returns null if the
+     * array is null.
+     */
+    public static Integer[] toObject(final int[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Integer[] result = new Integer[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of Long to an array of long. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static long[] toPrimitive(final Long[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final long[] result = new long[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of long to an array of Long. Returns null if the
+     * array is null.
+     */
+    public static Long[] toObject(final long[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Long[] result = new Long[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of Float to an array of float. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static float[] toPrimitive(final Float[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final float[] result = new float[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of float to an array of Float. Returns null if the
+     * array is null.
+     */
+    public static Float[] toObject(final float[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Float[] result = new Float[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of Double to an array of double. Returns null if the
+     * array is null. Throws a NullPointerException if any element is null.
+     */
+    public static double[] toPrimitive(final Double[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final double[] result = new double[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Converts an array of double to an array of Double. Returns null if the
+     * array is null.
+     */
+    public static Double[] toObject(final double[] array) {
+
+        if (array == null) {
+            return null;
+        }
+
+        final Double[] result = new Double[array.length];
+        forEachRange(array.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = array[i];
+            }
+        });
+        return result;
     }
 
     private ObjectUtils() {
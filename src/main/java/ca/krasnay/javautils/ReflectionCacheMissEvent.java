@@ -0,0 +1,58 @@
+package ca.krasnay.javautils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted when ReflectionUtils has to look up the
+ * fields or methods of a class because they are not yet cached. The event's
+ * duration is the time taken by the lookup.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@Name("ca.krasnay.javautils.ReflectionCacheMiss")
+@Label("Reflection Cache Miss")
+@Category({ "Java Utilities", "Reflection" })
+@Description("Fields or methods of a class looked up and cached by ReflectionUtils")
+final class ReflectionCacheMissEvent extends jdk.jfr.Event {
+
+    /**
+     * Type of this event, checked before an event is allocated.
+     */
+    private static final EventType TYPE = EventType.getEventType(ReflectionCacheMissEvent.class);
+
+    @Label("Class")
+    Class<?> targetClass;
+
+    @Label("Cache")
+    @Description("Kind of member looked up: fields or methods")
+    String cache;
+
+    @Label("Member Count")
+    int memberCount;
+
+    /**
+     * Returns a started event, or null if the event is not enabled, in which
+     * case nothing is allocated.
+     */
+    static ReflectionCacheMissEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        ReflectionCacheMissEvent event = new ReflectionCacheMissEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(Class<?> targetClass, String cache, int memberCount) {
+        if (shouldCommit()) {
+            this.targetClass = targetClass;
+            this.cache = cache;
+            this.memberCount = memberCount;
+            commit();
+        }
+    }
+}
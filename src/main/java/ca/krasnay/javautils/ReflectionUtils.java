@@ -3,8 +3,10 @@ package ca.krasnay.javautils;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -20,6 +22,205 @@ import java.util.Set;
  */
 public final class ReflectionUtils {
 
+    /**
+     * Minimum number of objects for which
+     * {@link #getFieldColumns(Collection, Class, String...)} extracts values
+     * in parallel.
+     */
+    public static final int PARALLEL_COLUMNS_THRESHOLD = 10000;
+
+    private static final int COLUMNS_CHUNK_SIZE = 4096;
+
+    private static final int INT_COLUMN = 0;
+    private static final int LONG_COLUMN = 1;
+    private static final int DOUBLE_COLUMN = 2;
+    private static final int OBJECT_COLUMN = 3;
+
+    /**
+     * Generated field accessor tables, or null for classes without one.
+     */
+    private static final ClassValue<FieldAccessorTable> accessorTables = new ClassValue<FieldAccessorTable>() {
+        @Override
+        protected FieldAccessorTable computeValue(Class<?> type) {
+            return loadAccessorTable(type);
+        }
+    };
+
+    /**
+     * Fields in each class hierarchy by name, with the field closest to the
+     * class winning. A missing key is a cached negative result.
+     */
+    private static final ClassValue<Map<String, Field>> fieldsByName = new ClassValue<Map<String, Field>>() {
+        @Override
+        protected Map<String, Field> computeValue(Class<?> type) {
+            ReflectionCacheMissEvent event = startCacheMissEvent();
+            Map<String, Field> map = new HashMap<String, Field>();
+            if (!type.isPrimitive()) {
+                for (Field field : getDeclaredFieldsInHierarchy(type)) {
+                    if (!map.containsKey(field.getName())) {
+                        map.put(field.getName(), field);
+                    }
+                }
+            }
+            if (event != null) {
+                event.finish(type, "fields", map.size());
+            }
+            return map;
+        }
+    };
+
+    /**
+     * First public method of each name in each class. A missing key is a
+     * cached negative result.
+     */
+    private static final ClassValue<Map<String, Method>> methodsByName = new ClassValue<Map<String, Method>>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> type) {
+            ReflectionCacheMissEvent event = startCacheMissEvent();
+            Map<String, Method> map = new HashMap<String, Method>();
+            for (Method method : type.getMethods()) {
+                if (!map.containsKey(method.getName())) {
+                    map.put(method.getName(), method);
+                }
+            }
+            if (event != null) {
+                event.finish(type, "methods", map.size());
+            }
+            return map;
+        }
+    };
+
+    /**
+     * Compiled field copy plans, by source class then target class. The
+     * plans for each source class are themselves kept in a ClassValue, so
+     * the cache does not keep target classes from being unloaded.
+     */
+    private static final ClassValue<ClassValue<CopyPlan>> copyPlans = new ClassValue<ClassValue<CopyPlan>>() {
+        @Override
+        protected ClassValue<CopyPlan> computeValue(final Class<?> sourceClass) {
+            return new ClassValue<CopyPlan>() {
+                @Override
+                protected CopyPlan computeValue(Class<?> targetClass) {
+                    return new CopyPlan(sourceClass, targetClass);
+                }
+            };
+        }
+    };
+
+    /**
+     * List of field pairs to copy from one class to another. The kind of each
+     * pair is the FieldPlan kind of the target field if both fields are
+     * primitive, in which case the value is copied without boxing, or
+     * FieldPlan.OBJECT otherwise.
+     */
+    private static final class CopyPlan {
+
+        final Field[] sources;
+        final Field[] targets;
+        final int[] kinds;
+
+        /**
+         * Indexes of pairs that copy a boxed value into a primitive field,
+         * which are checked for nulls before anything is copied.
+         */
+        final int[] unboxed;
+
+        CopyPlan(Class<?> sourceClass, Class<?> targetClass) {
+
+            List<Field> sourceList = new ArrayList<Field>();
+            List<Field> targetList = new ArrayList<Field>();
+
+            for (Field target : fieldsByName.get(targetClass).values()) {
+
+                Field source = fieldsByName.get(sourceClass).get(target.getName());
+
+                if (source == null || !isCopyable(source) || !isCopyable(target) || Modifier.isFinal(target.getModifiers())) {
+                    continue;
+                }
+
+                Class<?> sourceType = source.getType();
+                Class<?> targetType = target.getType();
+
+                boolean compatible;
+                if (targetType.isPrimitive()) {
+                    compatible = isPromotableFrom(targetType, sourceType);
+                } else if (sourceType.isPrimitive()) {
+                    compatible = targetType.isAssignableFrom(boxTypes.get(sourceType));
+                } else {
+                    compatible = targetType.isAssignableFrom(sourceType);
+                }
+
+                if (compatible) {
+                    source.setAccessible(true);
+                    target.setAccessible(true);
+                    sourceList.add(source);
+                    targetList.add(target);
+                }
+            }
+
+            sources = sourceList.toArray(new Field[sourceList.size()]);
+            targets = targetList.toArray(new Field[targetList.size()]);
+            kinds = new int[targets.length];
+            int unboxedCount = 0;
+            for (int i = 0; i < targets.length; i++) {
+                kinds[i] = sources[i].getType().isPrimitive() ? FieldPlan.kindOf(targets[i].getType()) : FieldPlan.OBJECT;
+                if (!sources[i].getType().isPrimitive() && targets[i].getType().isPrimitive()) {
+                    unboxedCount++;
+                }
+            }
+            unboxed = new int[unboxedCount];
+            for (int i = 0, j = 0; i < targets.length; i++) {
+                if (!sources[i].getType().isPrimitive() && targets[i].getType().isPrimitive()) {
+                    unboxed[j++] = i;
+                }
+            }
+        }
+
+        private static boolean isCopyable(Field field) {
+            return !Modifier.isStatic(field.getModifiers()) && !field.isSynthetic();
+        }
+
+        void copy(Object source, Object target) throws IllegalAccessException {
+            for (int i : unboxed) {
+                if (sources[i].get(source) == null) {
+                    throw new IllegalArgumentException(String.format("Cannot copy null %s into primitive field %s", sources[i], targets[i]));
+                }
+            }
+            for (int i = 0; i < targets.length; i++) {
+                Field s = sources[i];
+                Field t = targets[i];
+                switch (kinds[i]) {
+                case FieldPlan.BOOLEAN:
+                    t.setBoolean(target, s.getBoolean(source));
+                    break;
+                case FieldPlan.BYTE:
+                    t.setByte(target, s.getByte(source));
+                    break;
+                case FieldPlan.CHAR:
+                    t.setChar(target, s.getChar(source));
+                    break;
+                case FieldPlan.SHORT:
+                    t.setShort(target, s.getShort(source));
+                    break;
+                case FieldPlan.INT:
+                    t.setInt(target, s.getInt(source));
+                    break;
+                case FieldPlan.LONG:
+                    t.setLong(target, s.getLong(source));
+                    break;
+                case FieldPlan.FLOAT:
+                    t.setFloat(target, s.getFloat(source));
+                    break;
+                case FieldPlan.DOUBLE:
+                    t.setDouble(target, s.getDouble(source));
+                    break;
+                default:
+                    t.set(target, s.get(source));
+                }
+            }
+        }
+    }
+
     private static Map<Class<?>, Class<?>> boxTypes = new HashMap<Class<?>, Class<?>>();
     private static Map<Class<?>, Set<Class<?>>> promotions = new HashMap<Class<?>, Set<Class<?>>>();
 
@@ -70,6 +271,43 @@ public final class ReflectionUtils {
         set.add(to);
     }
 
+    /**
+     * Returns a started flight recorder event for a cache miss, or null if
+     * the event is disabled or flight recorder is not available.
+     */
+    private static ReflectionCacheMissEvent startCacheMissEvent() {
+        return JfrSupport.AVAILABLE ? ReflectionCacheMissEvent.start() : null;
+    }
+
+    /**
+     * Returns a started flight recorder event for a reflective access, or
+     * null if the event is disabled or flight recorder is not available.
+     */
+    private static ReflectiveAccessEvent startAccessEvent() {
+        return JfrSupport.AVAILABLE ? ReflectiveAccessEvent.start() : null;
+    }
+
+    /**
+     * Loads the generated FieldAccessorTable for the given class, if it is
+     * annotated with GenerateFieldAccessors and the table exists.
+     */
+    private static FieldAccessorTable loadAccessorTable(Class<?> clazz) {
+
+        if (!clazz.isAnnotationPresent(GenerateFieldAccessors.class)) {
+            return null;
+        }
+
+        try {
+            Class<?> tableClass = Class.forName(clazz.getName() + FieldAccessorTable.SUFFIX, true, clazz.getClassLoader());
+            return (FieldAccessorTable) tableClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            // Annotated, but compiled without the annotation processor
+            return null;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Asserts the given array of method arguments will work when invoking the
      * given method. If not, a RuntimeException will be thrown with a detailed
@@ -113,6 +351,82 @@ public final class ReflectionUtils {
         }
     }
 
+    /**
+     * Returns the wrapper class of a primitive type, or the type itself if it
+     * isn't primitive.
+     */
+    static Class<?> boxType(Class<?> type) {
+        return type.isPrimitive() ? boxTypes.get(type) : type;
+    }
+
+    /**
+     * Copies the values of fields from one object to another, matching fields
+     * by name. A field is copied if the target field can be assigned from the
+     * source field according to {@link #isPromotableFrom(Class, Class)}, e.g.
+     * from an int field to a long or Integer field. Static, synthetic and
+     * final target fields, fields with no counterpart of the same name, and
+     * fields of incompatible types are ignored. Fields hidden by a field of
+     * the same name closer to the object's class are also ignored.
+     *
+     * The list of fields to copy is worked out once for each pair of source
+     * and target classes and cached. Values are copied between two primitive
+     * fields without boxing.
+     *
+     * @param source
+     *            Object from which to copy field values.
+     * @param target
+     *            Object into which to copy field values.
+     * @throws IllegalArgumentException
+     *             if a null value would be copied into a primitive field, in
+     *             which case no fields are copied.
+     */
+    public static void copyFields(Object source, Object target) {
+
+        CopyPlan plan = copyPlans.get(source.getClass()).get(target.getClass());
+
+        try {
+            plan.copy(source, target);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the field with the given name in the class hierarchy, or null if
+     * there is none. Like {@link #getDeclaredFieldInHierarchy(Class, String)},
+     * but the fields of each class are looked up once and cached, including
+     * the fact that a field does not exist, so repeated probing for optional
+     * fields is cheap.
+     *
+     * The returned Field is shared by all callers and must not be modified.
+     *
+     * @param clazz
+     *            class to look for fields in the hierarchy
+     * @param fieldName
+     *            fieldName to find in the class
+     */
+    public static Field findField(Class<?> clazz, String fieldName) {
+        assert fieldName != null : "fieldName cannot be null";
+        return fieldsByName.get(clazz).get(fieldName);
+    }
+
+    /**
+     * Returns the first public method with the given name in the given class,
+     * or null if there is none. This is the method that
+     * {@link #invokeMethodByName(Object, String, Object...)} would invoke.
+     * Results are cached per class, including the fact that a method does not
+     * exist.
+     *
+     * @param clazz
+     *            class in which to look for the method
+     * @param methodName
+     *            name of the method
+     */
+    public static Method findMethod(Class<?> clazz, String methodName) {
+        assert methodName != null : "methodName cannot be null";
+        return methodsByName.get(clazz).get(methodName);
+    }
+
     /**
      * Returns the field with the given name in the class hierarchy. If multiple
      * fields with the same name exist in hierarchy, the field in the class
@@ -148,7 +462,7 @@ public final class ReflectionUtils {
 
         while (true) {
 
-            if (clazz == Object.class) {
+            if (clazz == Object.class || clazz == null) {
                 break;
             }
 
@@ -187,7 +501,126 @@ public final class ReflectionUtils {
     }
 
     /**
-     * Returns the value of a named field in the given object.
+     * Extracts the values of the given fields from each object in a
+     * collection, returning one array per field. This is much faster than
+     * calling {@link #getDeepFieldValue(Object, String)} for each object and
+     * field, since each field name is resolved once, and values of primitive
+     * fields are stored in primitive arrays without boxing. Collections of at
+     * least {@link #PARALLEL_COLUMNS_THRESHOLD} objects are split into chunks
+     * processed in parallel on the common fork-join pool.
+     *
+     * Field names may contain dots to traverse a hierarchy, e.g.
+     * "customer.address.postalCode". Fields are resolved against the declared
+     * type of each field along the path, starting with the given class. If an
+     * intermediate value is null, the value in an Object column is null, while
+     * a primitive column throws a NullPointerException.
+     *
+     * @param objects
+     *            Objects from which to extract values. Each must be an
+     *            instance of clazz.
+     * @param clazz
+     *            Class against which to resolve the field names.
+     * @param fieldNames
+     *            Names of the fields to extract, one column per name.
+     */
+    public static FieldColumns getFieldColumns(Collection<?> objects, Class<?> clazz, String... fieldNames) {
+
+        final Object[] rows = objects.toArray();
+        final Field[][] paths = new Field[fieldNames.length][];
+        final int[] kinds = new int[fieldNames.length];
+        final Object[] columns = new Object[fieldNames.length];
+
+        for (int c = 0; c < fieldNames.length; c++) {
+
+            paths[c] = resolveFieldPath(clazz, fieldNames[c]);
+            Class<?> type = paths[c][paths[c].length - 1].getType();
+
+            if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+                kinds[c] = INT_COLUMN;
+                columns[c] = new int[rows.length];
+            } else if (type == long.class) {
+                kinds[c] = LONG_COLUMN;
+                columns[c] = new long[rows.length];
+            } else if (type == double.class || type == float.class) {
+                kinds[c] = DOUBLE_COLUMN;
+                columns[c] = new double[rows.length];
+            } else {
+                kinds[c] = OBJECT_COLUMN;
+                columns[c] = new Object[rows.length];
+            }
+        }
+
+        ObjectUtils.forEachRange(rows.length, PARALLEL_COLUMNS_THRESHOLD, COLUMNS_CHUNK_SIZE, (from, to) -> {
+            try {
+                for (int c = 0; c < columns.length; c++) {
+                    fillColumn(rows, from, to, paths[c], kinds[c], columns[c]);
+                }
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        return new FieldColumns(fieldNames.clone(), columns, rows.length);
+    }
+
+    /**
+     * Resolves a dotted field name to the list of fields along the path,
+     * using the declared type of each field to resolve the next.
+     */
+    private static Field[] resolveFieldPath(Class<?> clazz, String fieldName) {
+
+        String[] names = fieldName.split("\\.", -1);
+        Field[] path = new Field[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+            Field field = findField(clazz, names[i]);
+            if (field == null) {
+                throw new RuntimeException(String.format("Class %s does not have field %s in its hierarchy.", clazz, names[i]));
+            }
+            field.setAccessible(true);
+            path[i] = field;
+            clazz = field.getType();
+        }
+
+        return path;
+    }
+
+    private static void fillColumn(Object[] rows, int from, int to, Field[] path, int kind, Object column) throws IllegalAccessException {
+
+        int last = path.length - 1;
+        Field leaf = path[last];
+
+        for (int i = from; i < to; i++) {
+
+            Object object = rows[i];
+            for (int j = 0; j < last && object != null; j++) {
+                object = path[j].get(object);
+            }
+
+            if (object == null && kind != OBJECT_COLUMN) {
+                throw new NullPointerException(String.format("Null value in path to field %s of object %d", leaf.getName(), i));
+            }
+
+            switch (kind) {
+            case INT_COLUMN:
+                ((int[]) column)[i] = leaf.getInt(object);
+                break;
+            case LONG_COLUMN:
+                ((long[]) column)[i] = leaf.getLong(object);
+                break;
+            case DOUBLE_COLUMN:
+                ((double[]) column)[i] = leaf.getDouble(object);
+                break;
+            default:
+                ((Object[]) column)[i] = object == null ? null : leaf.get(object);
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a named field in the given object. If the object's
+     * class has a generated {@link FieldAccessorTable} with an accessor for
+     * the field, the field is read directly rather than by reflection.
      *
      * @param object
      *            Object from which to retrieve the value.
@@ -195,9 +628,18 @@ public final class ReflectionUtils {
      *            Name of the field whose value to return.
      */
     public static Object getFieldValue(Object object, String fieldName) {
+
+        FieldAccessorTable table = accessorTables.get(object.getClass());
+        if (table != null) {
+            int index = table.indexOf(fieldName);
+            if (index >= 0) {
+                return table.get(object, index);
+            }
+        }
+
         try {
 
-            Field field = getDeclaredFieldInHierarchy(object.getClass(), fieldName);
+            Field field = findField(object.getClass(), fieldName);
 
             if (field == null) {
                 throw new RuntimeException(String.format("Class %s does not have field %s in its hierarchy.", object.getClass(), fieldName));
@@ -205,7 +647,12 @@ public final class ReflectionUtils {
 
             field.setAccessible(true);
 
-            return field.get(object);
+            ReflectiveAccessEvent event = startAccessEvent();
+            Object value = field.get(object);
+            if (event != null) {
+                event.finish(object.getClass(), fieldName, "get");
+            }
+            return value;
 
         } catch (Exception ex) {
             if (ex instanceof RuntimeException) {
@@ -232,28 +679,59 @@ public final class ReflectionUtils {
      *             if no matching exception was found.
      */
     public static Object invokeMethodByName(Object o, String methodName, Object... args) throws MethodNotFoundException {
+        return invokeMethodByName(o, methodName, args, false);
+    }
+
+    /**
+     * Invokes a public method on an object given its name, as
+     * {@link #invokeMethodByName(Object, String, Object...)} does, optionally
+     * throwing a MethodNotFoundException without a stack trace if there is no
+     * such method. Skipping the stack trace makes the exception much cheaper
+     * for callers that use it to probe for optional methods. Callers that
+     * don't need an exception at all should use
+     * {@link #findMethod(Class, String)}.
+     *
+     * @param o
+     *            Object on which to invoke the method.
+     * @param methodName
+     *            Name of the method to invoke.
+     * @param args
+     *            Arguments to pass to the method.
+     * @param stackless
+     *            If true, the MethodNotFoundException thrown has no stack
+     *            trace.
+     * @throws MethodNotFoundException
+     *             if no matching exception was found.
+     */
+    public static Object invokeMethodByName(Object o, String methodName, Object[] args, boolean stackless) throws MethodNotFoundException {
 
         assert o != null;
         assert methodName != null;
 
-        for (Method m : o.getClass().getMethods()) {
-            if (methodName.equals(m.getName())) {
-                try {
-                    return m.invoke(o, args);
-                } catch (IllegalArgumentException e) {
-                    assertMethodArgs(m, args); // This throws an exception if
-                                               // there's a problem with the
-                                               // arguments
-                    throw e; // In case there was some other problem
-                } catch (IllegalAccessException e) {
-                    throw new RuntimeException(e);
-                } catch (InvocationTargetException e) {
-                    throw new RuntimeException(e);
+        Method m = findMethod(o.getClass(), methodName);
+
+        if (m != null) {
+            try {
+                ReflectiveAccessEvent event = startAccessEvent();
+                Object result = m.invoke(o, args);
+                if (event != null) {
+                    event.finish(o.getClass(), methodName, "invoke");
                 }
+                return result;
+            } catch (IllegalArgumentException e) {
+                assertMethodArgs(m, args); // This throws an exception if
+                                           // there's a problem with the
+                                           // arguments
+                throw e; // In case there was some other problem
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException(e);
             }
         }
 
-        throw new MethodNotFoundException(String.format("Method %s not found in class %s", methodName, o.getClass()));
+        String message = String.format("Method %s not found in class %s", methodName, o.getClass());
+        throw stackless ? MethodNotFoundException.stackless(message) : new MethodNotFoundException(message);
     }
 
     /**
@@ -328,7 +806,9 @@ public final class ReflectionUtils {
     }
 
     /**
-     * Sets the value of a field in an object.
+     * Sets the value of a field in an object. If the object's class has a
+     * generated {@link FieldAccessorTable} that can set the field, the field
+     * is written directly rather than by reflection.
      *
      * @param object
      *            Object in which to set the field.
@@ -338,13 +818,26 @@ public final class ReflectionUtils {
      *            Value to which to set the field.
      */
     public static void setFieldValue(Object object, String fieldName, Object value) {
+
+        FieldAccessorTable table = accessorTables.get(object.getClass());
+        if (table != null) {
+            int index = table.indexOf(fieldName);
+            if (index >= 0 && table.set(object, index, value)) {
+                return;
+            }
+        }
+
         try {
-            Field field = getDeclaredFieldInHierarchy(object.getClass(), fieldName);
+            Field field = findField(object.getClass(), fieldName);
             if (field == null) {
                 throw new RuntimeException(String.format("Class %s does not have field %s in its hierarchy.", object.getClass(), fieldName));
             }
             field.setAccessible(true);
+            ReflectiveAccessEvent event = startAccessEvent();
             field.set(object, value);
+            if (event != null) {
+                event.finish(object.getClass(), fieldName, "set");
+            }
         } catch (Exception ex) {
             if (ex instanceof RuntimeException) {
                 throw (RuntimeException) ex;
@@ -355,6 +848,83 @@ public final class ReflectionUtils {
 
     }
 
+    /**
+     * Sets the value of a field in an object, first converting the value to
+     * the field's type with the given registry if it can't be assigned as is.
+     * For example, the string "42" can be assigned to an int field, or "HOURS"
+     * to a TimeUnit field.
+     *
+     * @param object
+     *            Object in which to set the field.
+     * @param fieldName
+     *            Name of the field.
+     * @param value
+     *            Value to which to set the field.
+     * @param converters
+     *            Converters used to convert the value.
+     * @throws IllegalArgumentException
+     *             if the value needs converting and there is no suitable
+     *             converter, or the converter rejects it.
+     */
+    public static void setFieldValue(Object object, String fieldName, Object value, ConverterRegistry converters) {
+        try {
+            Field field = findField(object.getClass(), fieldName);
+            if (field == null) {
+                throw new RuntimeException(String.format("Class %s does not have field %s in its hierarchy.", object.getClass(), fieldName));
+            }
+            field.setAccessible(true);
+            ReflectiveAccessEvent event = startAccessEvent();
+            converters.setField(field, object, value);
+            if (event != null) {
+                event.finish(object.getClass(), fieldName, "set");
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the value of a named field in the given object, or the given
+     * default value if the object's class has no such field. Unlike
+     * {@link #getFieldValue(Object, String)}, no exception is created when
+     * the field is missing.
+     *
+     * @param object
+     *            Object from which to retrieve the value.
+     * @param fieldName
+     *            Name of the field whose value to return.
+     * @param defaultValue
+     *            Value to return if there is no such field.
+     */
+    public static Object tryGetFieldValue(Object object, String fieldName, Object defaultValue) {
+
+        FieldAccessorTable table = accessorTables.get(object.getClass());
+        if (table != null) {
+            int index = table.indexOf(fieldName);
+            if (index >= 0) {
+                return table.get(object, index);
+            }
+        }
+
+        Field field = findField(object.getClass(), fieldName);
+
+        if (field == null) {
+            return defaultValue;
+        }
+
+        try {
+            field.setAccessible(true);
+            ReflectiveAccessEvent event = startAccessEvent();
+            Object value = field.get(object);
+            if (event != null) {
+                event.finish(object.getClass(), fieldName, "get");
+            }
+            return value;
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Prevent instantiation.
      */
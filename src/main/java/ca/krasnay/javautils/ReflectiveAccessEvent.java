@@ -0,0 +1,63 @@
+package ca.krasnay.javautils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event emitted for each field read or written, or method
+ * invoked, by ReflectionUtils. These are frequent, so the event is disabled by
+ * default and records no stack trace; enable it in a recording's settings to
+ * find the classes and members with the most reflective traffic.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+@Name("ca.krasnay.javautils.ReflectiveAccess")
+@Label("Reflective Access")
+@Category({ "Java Utilities", "Reflection" })
+@Description("Field read or written, or method invoked, through ReflectionUtils")
+@Enabled(false)
+@StackTrace(false)
+final class ReflectiveAccessEvent extends jdk.jfr.Event {
+
+    /**
+     * Type of this event, checked before an event is allocated.
+     */
+    private static final EventType TYPE = EventType.getEventType(ReflectiveAccessEvent.class);
+
+    @Label("Class")
+    Class<?> targetClass;
+
+    @Label("Member")
+    String member;
+
+    @Label("Operation")
+    @Description("get, set or invoke")
+    String operation;
+
+    /**
+     * Returns a started event, or null if the event is not enabled, in which
+     * case nothing is allocated.
+     */
+    static ReflectiveAccessEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        ReflectiveAccessEvent event = new ReflectiveAccessEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(Class<?> targetClass, String member, String operation) {
+        if (shouldCommit()) {
+            this.targetClass = targetClass;
+            this.member = member;
+            this.operation = operation;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ca.krasnay.javautils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded table of canonical strings, used to replace equal strings with a
+ * single instance, as in {@link StringUtils#intern(CharSequence)}. Unlike
+ * String.intern, the pool holds at most a fixed number of strings, and
+ * looking up characters that are already pooled does not allocate.
+ *
+ * The pool is a lossy cache: each string can only live in one of two slots
+ * chosen by its hash, and adding a string whose slots are both taken evicts
+ * one of them. Equal strings therefore usually, but not always, come back as
+ * the same instance. The pool is lock-free and safe for use by many threads.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public final class StringPool {
+
+    private final AtomicReferenceArray<String> table;
+
+    private final int mask;
+
+    /**
+     * Creates a pool holding up to the given number of strings, rounded up
+     * to a power of two.
+     */
+    public StringPool(int capacity) {
+
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        table = new AtomicReferenceArray<String>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the index of the first of the two slots for the given hash.
+     */
+    private int slot(int hash) {
+        hash ^= hash >>> 16;
+        return (hash * 0x9e3779b9) & mask & ~1;
+    }
+
+    /**
+     * Returns the canonical instance of the given characters, adding a new
+     * string to the pool if there is none. Returns null if s is null.
+     */
+    public String intern(CharSequence s) {
+
+        if (s == null) {
+            return null;
+        }
+
+        int hash;
+        if (s instanceof String) {
+            hash = s.hashCode();
+        } else {
+            hash = 0;
+            for (int i = 0; i < s.length(); i++) {
+                hash = 31 * hash + s.charAt(i);
+            }
+        }
+
+        int slot = slot(hash);
+
+        for (int i = slot; i < slot + 2; i++) {
+            String candidate = table.get(i);
+            if (candidate != null && candidate.hashCode() == hash && candidate.contentEquals(s)) {
+                return candidate;
+            }
+        }
+
+        return add(slot, hash, s.toString());
+    }
+
+    /**
+     * Returns the canonical instance of the given range of characters,
+     * adding a new string to the pool if there is none.
+     */
+    public String intern(char[] chars, int offset, int length) {
+
+        if (offset < 0 || length < 0 || offset + length > chars.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + chars.length);
+        }
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        int slot = slot(hash);
+
+        for (int i = slot; i < slot + 2; i++) {
+            String candidate = table.get(i);
+            if (candidate != null && candidate.hashCode() == hash && equals(candidate, chars, offset, length)) {
+                return candidate;
+            }
+        }
+
+        return add(slot, hash, new String(chars, offset, length));
+    }
+
+    private static boolean equals(String s, char[] chars, int offset, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores a new string in an empty slot of its pair, or else evicts the
+     * occupant of the slot picked by a spare bit of the hash.
+     */
+    private String add(int slot, int hash, String s) {
+        int i = table.get(slot) == null ? slot : table.get(slot + 1) == null ? slot + 1 : slot + ((hash >>> 31) ^ (hash & 1));
+        table.lazySet(i, s);
+        return s;
+    }
+
+    /**
+     * Returns the maximum number of strings the pool can hold.
+     */
+    public int capacity() {
+        return table.length();
+    }
+
+    /**
+     * Removes all strings from the pool.
+     */
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+    }
+
+}
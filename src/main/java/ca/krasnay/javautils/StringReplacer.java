@@ -0,0 +1,351 @@
+package ca.krasnay.javautils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replaces any number of search strings in a single pass over the input, as
+ * used by {@link StringUtils#replaceEach(String, String[], String[])}.
+ *
+ * The search strings are compiled into an Aho-Corasick automaton when the
+ * replacer is constructed, so a replacer should be created once and reused
+ * for many inputs. Replacers are immutable and thread-safe.
+ *
+ * Where matches overlap, the one that starts first wins, and of those that
+ * start at the same place, the longest. Replacement text is not searched
+ * again. Empty search strings are ignored, and if a search string appears
+ * more than once, the first replacement given for it is used.
+ *
+ * The automaton runs over the input once, without ever backing up. Every
+ * match is found through the output links of the automaton and recorded
+ * against its start position, and a position is settled, i.e. its longest
+ * match replaced or its character copied, once no match still in progress
+ * could start at or before it.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public final class StringReplacer {
+
+    /**
+     * Number of characters handled by the dense transition table of the root
+     * state.
+     */
+    private static final int ROOT_TABLE_SIZE = 128;
+
+    private final String[] replacements;
+
+    /**
+     * Sorted transition characters of each state.
+     */
+    private final char[][] keys;
+
+    /**
+     * Target state of each transition, parallel to keys.
+     */
+    private final int[][] targets;
+
+    /**
+     * Transitions from the root for ASCII characters, -1 where none.
+     */
+    private final int[] rootTable = new int[ROOT_TABLE_SIZE];
+
+    /**
+     * State reached on failure, i.e. the state for the longest proper suffix
+     * of this state's string that is also a prefix of a search string.
+     */
+    private final int[] fail;
+
+    /**
+     * Length of each state's string.
+     */
+    private final int[] depth;
+
+    /**
+     * Index of the search string equal to each state's string, or -1.
+     */
+    private final int[] terminal;
+
+    /**
+     * The state itself or nearest state along its failure links whose string
+     * is a search string, or 0 if there is none. Following output links from
+     * a state therefore visits every search string that ends there, longest
+     * first.
+     */
+    private final int[] output;
+
+    /**
+     * Length of the longest search string plus one, which is the most
+     * positions that can be unsettled at once.
+     */
+    private final int window;
+
+    /**
+     * Creates a replacer for the given search strings and their replacements.
+     *
+     * @throws IllegalArgumentException
+     *             if the arrays are of different lengths.
+     */
+    public StringReplacer(String[] search, String[] replace) {
+
+        assert search != null;
+        assert replace != null;
+
+        if (search.length != replace.length) {
+            throw new IllegalArgumentException(String.format("Got %d search strings but %d replacements", search.length, replace.length));
+        }
+
+        this.replacements = replace.clone();
+
+        // Build the trie
+
+        List<Map<Character, Integer>> edges = new ArrayList<Map<Character, Integer>>();
+        List<Integer> terminals = new ArrayList<Integer>();
+        List<Integer> depths = new ArrayList<Integer>();
+        edges.add(new TreeMap<Character, Integer>());
+        terminals.add(-1);
+        depths.add(0);
+
+        for (int i = 0; i < search.length; i++) {
+
+            String s = search[i];
+
+            if (s == null || s.length() == 0) {
+                continue;
+            }
+
+            assert replace[i] != null;
+
+            int state = 0;
+            for (int j = 0; j < s.length(); j++) {
+                Integer next = edges.get(state).get(s.charAt(j));
+                if (next == null) {
+                    next = edges.size();
+                    edges.add(new TreeMap<Character, Integer>());
+                    terminals.add(-1);
+                    depths.add(j + 1);
+                    edges.get(state).put(s.charAt(j), next);
+                }
+                state = next;
+            }
+
+            if (terminals.get(state) < 0) {
+                terminals.set(state, i);
+            }
+        }
+
+        int count = edges.size();
+        keys = new char[count][];
+        targets = new int[count][];
+        fail = new int[count];
+        depth = new int[count];
+        terminal = new int[count];
+        output = new int[count];
+
+        int maxDepth = 0;
+
+        for (int state = 0; state < count; state++) {
+            Map<Character, Integer> map = edges.get(state);
+            keys[state] = new char[map.size()];
+            targets[state] = new int[map.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> entry : map.entrySet()) {
+                keys[state][k] = entry.getKey();
+                targets[state][k] = entry.getValue();
+                k++;
+            }
+            depth[state] = depths.get(state);
+            terminal[state] = terminals.get(state);
+            maxDepth = Math.max(maxDepth, depth[state]);
+        }
+
+        window = maxDepth + 1;
+
+        for (int c = 0; c < ROOT_TABLE_SIZE; c++) {
+            rootTable[c] = transition(0, (char) c);
+        }
+
+        // Compute failure and output links breadth-first, so that each
+        // state's failure state is done before the state itself
+
+        Deque<Integer> queue = new ArrayDeque<Integer>();
+        for (int target : targets[0]) {
+            fail[target] = 0;
+            queue.add(target);
+        }
+
+        while (!queue.isEmpty()) {
+
+            int state = queue.remove();
+            output[state] = terminal[state] >= 0 ? state : output[fail[state]];
+
+            for (int k = 0; k < keys[state].length; k++) {
+                int target = targets[state][k];
+                fail[target] = next(fail[state], keys[state][k]);
+                queue.add(target);
+            }
+        }
+    }
+
+    /**
+     * Returns the target of the transition from the given state on the given
+     * character, or -1 if there is none.
+     */
+    private int transition(int state, char c) {
+        char[] k = keys[state];
+        int low = 0;
+        int high = k.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (k[mid] < c) {
+                low = mid + 1;
+            } else if (k[mid] > c) {
+                high = mid - 1;
+            } else {
+                return targets[state][mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the state reached from the given state on the given character,
+     * following failure links as necessary.
+     */
+    private int next(int state, char c) {
+        while (state != 0) {
+            int target = transition(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            state = fail[state];
+        }
+        int target = c < ROOT_TABLE_SIZE ? rootTable[c] : transition(0, c);
+        return target < 0 ? 0 : target;
+    }
+
+    /**
+     * Returns the text with all search strings replaced. If nothing is
+     * replaced, no new string is allocated unless the text is not a String.
+     */
+    public String replace(CharSequence text) {
+
+        assert text != null;
+
+        try {
+            Appendable out = replace(text, null, false);
+            return out == null ? text.toString() : out.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Appends the text to the given Appendable with all search strings
+     * replaced. Text is appended as the input is scanned, so a large result
+     * can be streamed to a Writer without being held in memory.
+     */
+    public void replace(CharSequence text, Appendable out) {
+
+        assert text != null;
+        assert out != null;
+
+        try {
+            replace(text, out, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Scans the text, appending the result to the given Appendable. If out
+     * is null, a StringBuilder is created when the first match is found.
+     *
+     * @param always
+     *            If false, nothing is appended when there are no matches.
+     * @return the Appendable written to, or null if out was null and there
+     *         were no matches.
+     */
+    private Appendable replace(CharSequence text, Appendable out, boolean always) throws IOException {
+
+        int length = text.length();
+
+        // Characters before this have been copied or replaced
+        int copied = 0;
+
+        // Positions before this have been settled
+        int settled = 0;
+
+        // State of the longest match found starting at each unsettled
+        // position, indexed by position modulo the window, or 0 for none.
+        // Only allocated once a match is found.
+        int[] longest = null;
+
+        int state = 0;
+
+        for (int i = 0; i <= length; i++) {
+
+            // Earliest position at which a match may yet start
+            int live;
+
+            if (i < length) {
+
+                state = next(state, text.charAt(i));
+
+                for (int s = output[state]; s > 0; s = output[fail[s]]) {
+                    int start = i + 1 - depth[s];
+                    if (start >= copied) {
+                        if (longest == null) {
+                            longest = new int[window];
+                        }
+                        int slot = start % window;
+                        if (depth[s] > depth[longest[slot]]) {
+                            longest[slot] = s;
+                        }
+                    }
+                }
+
+                live = i + 1 - depth[state];
+
+            } else {
+                live = length;
+            }
+
+            if (longest == null) {
+                settled = live;
+                continue;
+            }
+
+            for (; settled < live; settled++) {
+
+                int slot = settled % window;
+                int s = longest[slot];
+
+                if (s == 0) {
+                    continue;
+                }
+
+                longest[slot] = 0;
+
+                if (settled >= copied) {
+                    if (out == null) {
+                        out = new StringBuilder(length + 16);
+                    }
+                    out.append(text, copied, settled).append(replacements[terminal[s]]);
+                    copied = settled + depth[s];
+                }
+            }
+        }
+
+        if (copied > 0 || always) {
+            out.append(text, copied, length);
+        }
+
+        return out;
+    }
+
+}
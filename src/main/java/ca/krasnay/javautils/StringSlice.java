@@ -0,0 +1,93 @@
+package ca.krasnay.javautils;
+
+/**
+ * A read-only view of a range of characters in another CharSequence, as
+ * returned by {@link StringUtils#split(CharSequence, char)}. Creating a slice
+ * does not copy any characters; a String is only created if
+ * {@link #toString()} is called, and is then cached.
+ *
+ * A slice reflects the current contents of its source, so it should only be
+ * used over immutable sources such as strings. Unlike String, slices are
+ * compared by identity with equals; compare their toString values to compare
+ * their contents.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public final class StringSlice implements CharSequence {
+
+    private final CharSequence source;
+
+    private final int start;
+
+    private final int end;
+
+    private String string;
+
+    /**
+     * Creates a slice of the characters from start (inclusive) to end
+     * (exclusive) of the given source.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if start or end are out of range.
+     */
+    public StringSlice(CharSequence source, int start, int end) {
+
+        assert source != null;
+
+        if (start < 0 || end > source.length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + source.length());
+        }
+
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + (end - start));
+        }
+        return source.charAt(start + index);
+    }
+
+    /**
+     * Returns the end offset of this slice in its source, exclusive.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the sequence this slice was taken from.
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the start offset of this slice in its source.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public StringSlice subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        return new StringSlice(source, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        if (string == null) {
+            string = source.subSequence(start, end).toString();
+        }
+        return string;
+    }
+
+}
@@ -1,7 +1,11 @@
 package ca.krasnay.javautils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Utility methods related to strings.
@@ -10,6 +14,72 @@ import java.util.List;
  */
 public final class StringUtils {
 
+    /**
+     * Number of items formatted by each task of a parallel join.
+     */
+    static final int JOIN_SEGMENT_SIZE = 4096;
+
+    /**
+     * Escape sequences for HTML text and attribute values, indexed by
+     * character. Characters beyond the end of the table or with a null entry
+     * are copied as-is.
+     */
+    private static final String[] HTML_ESCAPES = new String[128];
+
+    /**
+     * Escape sequences for the contents of JSON strings.
+     */
+    private static final String[] JSON_ESCAPES = new String[128];
+
+    /**
+     * Pool used by {@link #intern(CharSequence)}.
+     */
+    private static final StringPool POOL = new StringPool(8192);
+
+    private static final char[] CSV_SPECIALS = { ',', '"', '\n', '\r' };
+
+    /**
+     * Bit masks of CSV_SPECIALS for {@link #indexOfAny(CharSequence, int, char...)},
+     * computed once since they're checked for every value escaped.
+     */
+    private static final long CSV_LOW_MASK = lowMask(CSV_SPECIALS);
+
+    private static final long CSV_HIGH_MASK = highMask(CSV_SPECIALS);
+
+    static {
+
+        HTML_ESCAPES['&'] = "&amp;";
+        HTML_ESCAPES['<'] = "&lt;";
+        HTML_ESCAPES['>'] = "&gt;";
+        HTML_ESCAPES['"'] = "&quot;";
+        HTML_ESCAPES['\''] = "&#39;";
+
+        for (int c = 0; c < 0x20; c++) {
+            JSON_ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        JSON_ESCAPES['\b'] = "\\b";
+        JSON_ESCAPES['\t'] = "\\t";
+        JSON_ESCAPES['\n'] = "\\n";
+        JSON_ESCAPES['\f'] = "\\f";
+        JSON_ESCAPES['\r'] = "\\r";
+        JSON_ESCAPES['"'] = "\\\"";
+        JSON_ESCAPES['\\'] = "\\\\";
+    }
+
+    /**
+     * Returns the number of occurrences of a character in a sequence.
+     */
+    public static int countOf(CharSequence s, char c) {
+
+        assert s != null;
+
+        int count = 0;
+        for (int i = indexOf(s, c, 0); i >= 0; i = indexOf(s, c, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
     /**
      * Null-safe equals method. Returns true if both strings are null, or if
      * neither are null and comparing them with String.equals returns true.
@@ -18,12 +88,341 @@ public final class StringUtils {
         return ObjectUtils.equals(s1, s2);
     }
 
+    /**
+     * Returns the index of the first character at or after the given index
+     * that has an entry in the escape table, or -1 if there is none.
+     */
+    private static int indexOfEscape(CharSequence s, String[] table, int fromIndex) {
+        for (int i = fromIndex; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < table.length && table[c] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends the sequence from the given index to the Appendable, replacing
+     * characters that have an entry in the escape table. Runs of characters
+     * that don't need escaping are appended in bulk.
+     */
+    private static void escape(CharSequence s, int fromIndex, String[] table, Appendable out) throws IOException {
+        int start = fromIndex;
+        for (int i = indexOfEscape(s, table, fromIndex); i >= 0; i = indexOfEscape(s, table, start)) {
+            out.append(s, start, i).append(table[s.charAt(i)]);
+            start = i + 1;
+        }
+        out.append(s, start, s.length());
+    }
+
+    /**
+     * Returns the string with characters escaped using the given table, or
+     * the string itself if nothing needs escaping.
+     */
+    private static String escape(String s, String[] table) {
+
+        if (s == null) {
+            return null;
+        }
+
+        int first = indexOfEscape(s, table, 0);
+        if (first < 0) {
+            return s;
+        }
+
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        sb.append(s, 0, first);
+        try {
+            escape(s, first, table, sb);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    private static void escape(CharSequence s, String[] table, Appendable out) {
+
+        assert s != null;
+        assert out != null;
+
+        try {
+            escape(s, 0, table, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns true if the value must be quoted in a CSV file, i.e. if it
+     * contains a comma, double quote or line break.
+     */
+    private static boolean needsCsvQuotes(CharSequence s) {
+        return indexOfAny(s, 0, CSV_LOW_MASK, CSV_HIGH_MASK, null) >= 0;
+    }
+
+    /**
+     * Escapes a value for use as a field in a CSV file, as described in RFC
+     * 4180. If the value contains a comma, double quote or line break, it is
+     * enclosed in double quotes and its double quotes are doubled; otherwise
+     * the value itself is returned. Returns null if the value is null.
+     */
+    public static String escapeCsv(String s) {
+
+        if (s == null || !needsCsvQuotes(s)) {
+            return s;
+        }
+
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        escapeCsv(s, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends a value escaped as described in {@link #escapeCsv(String)}.
+     */
+    public static void escapeCsv(CharSequence s, Appendable out) {
+
+        assert s != null;
+        assert out != null;
+
+        try {
+            if (!needsCsvQuotes(s)) {
+                out.append(s);
+                return;
+            }
+
+            out.append('"');
+            int start = 0;
+            for (int i = indexOf(s, '"', 0); i >= 0; i = indexOf(s, '"', start)) {
+                out.append(s, start, i + 1).append('"');
+                start = i + 1;
+            }
+            out.append(s, start, s.length()).append('"');
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Escapes the characters that are special in HTML text and attribute
+     * values: &amp;, &lt;, &gt;, double quote and single quote. Returns the
+     * string itself if it contains none of them, or null if it is null.
+     */
+    public static String escapeHtml(String s) {
+        return escape(s, HTML_ESCAPES);
+    }
+
+    /**
+     * Appends a value escaped as described in {@link #escapeHtml(String)},
+     * e.g. directly to a response Writer.
+     */
+    public static void escapeHtml(CharSequence s, Appendable out) {
+        escape(s, HTML_ESCAPES, out);
+    }
+
+    /**
+     * Escapes a value for use inside a JSON string literal, i.e. escapes
+     * double quotes, backslashes and control characters. The enclosing
+     * quotes are not added. Returns the string itself if nothing needs
+     * escaping, or null if it is null.
+     */
+    public static String escapeJson(String s) {
+        return escape(s, JSON_ESCAPES);
+    }
+
+    /**
+     * Appends a value escaped as described in {@link #escapeJson(String)},
+     * e.g. directly to a response Writer.
+     */
+    public static void escapeJson(CharSequence s, Appendable out) {
+        escape(s, JSON_ESCAPES, out);
+    }
+
+    /**
+     * Returns the index of the first occurrence of the character in the
+     * sequence at or after the given index, or -1 if there is none.
+     */
+    private static int indexOf(CharSequence s, char c, int fromIndex) {
+
+        if (s instanceof String) {
+            return ((String) s).indexOf(c, fromIndex);
+        }
+
+        for (int i = fromIndex; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the string in the
+     * sequence at or after the given index, or -1 if there is none.
+     */
+    private static int indexOf(CharSequence s, String target, int fromIndex) {
+
+        if (s instanceof String) {
+            return ((String) s).indexOf(target, fromIndex);
+        }
+
+        char first = target.charAt(0);
+        int max = s.length() - target.length();
+
+        for (int i = indexOf(s, first, fromIndex); i >= 0 && i <= max; i = indexOf(s, first, i + 1)) {
+            int j = 1;
+            while (j < target.length() && s.charAt(i + j) == target.charAt(j)) {
+                j++;
+            }
+            if (j == target.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first character in the sequence that is not
+     * whitespace, or -1 if there is none. As with String.trim, whitespace is
+     * any character up to and including the space character.
+     */
+    public static int firstNonWhitespace(CharSequence s) {
+
+        assert s != null;
+
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first occurrence of any of the given
+     * characters in the sequence at or after the given index, or -1 if there
+     * is none. ASCII characters are looked up in a bit mask, so the cost per
+     * character scanned does not grow with the number of characters sought.
+     */
+    public static int indexOfAny(CharSequence s, int fromIndex, char... chars) {
+
+        assert s != null;
+        assert chars != null;
+
+        if (chars.length == 1) {
+            return indexOf(s, chars[0], Math.max(fromIndex, 0));
+        }
+
+        char[] others = null;
+        for (char c : chars) {
+            if (c >= 128) {
+                others = chars;
+                break;
+            }
+        }
+
+        return indexOfAny(s, fromIndex, lowMask(chars), highMask(chars), others);
+    }
+
+    /**
+     * Returns a bit mask of the given characters that are below 64.
+     */
+    private static long lowMask(char[] chars) {
+        long mask = 0;
+        for (char c : chars) {
+            if (c < 64) {
+                mask |= 1L << c;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns a bit mask of the given characters from 64 to 127, shifted
+     * down by 64.
+     */
+    private static long highMask(char[] chars) {
+        long mask = 0;
+        for (char c : chars) {
+            if (c >= 64 && c < 128) {
+                mask |= 1L << (c - 64);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Scans for the characters in the given bit masks, or in others for
+     * characters of 128 and up. Others may be null if no such characters are
+     * sought.
+     *
+     * Unlike the byte scanners in IOUtils, this tests one character at a
+     * time. A CharSequence only offers charAt, and there is no view of a
+     * char[] as longs, so packing four characters into a word costs as many
+     * reads as testing them. The JDK's Vector API would help, but it is an
+     * incubator module that is absent from Java 11 and needs --add-modules
+     * on every application that uses this library.
+     */
+    private static int indexOfAny(CharSequence s, int fromIndex, long low, long high, char[] others) {
+
+        for (int i = Math.max(fromIndex, 0); i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 64) {
+                if ((low & (1L << c)) != 0) {
+                    return i;
+                }
+            } else if (c < 128) {
+                if ((high & (1L << (c - 64))) != 0) {
+                    return i;
+                }
+            } else if (others != null) {
+                for (char other : others) {
+                    if (other == c) {
+                        return i;
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first occurrence of any of the given
+     * characters in the sequence, or -1 if there is none.
+     */
+    public static int indexOfAny(CharSequence s, char... chars) {
+        return indexOfAny(s, 0, chars);
+    }
+
+    /**
+     * Returns a canonical instance of the given characters from a shared,
+     * bounded {@link StringPool}. Use this for values such as codes and
+     * statuses that recur many times in loaded data, so that long-lived
+     * objects share one copy of each. Returns null if s is null. Code that
+     * needs a pool of a different size, or one it can clear, should create
+     * its own StringPool.
+     */
+    public static String intern(CharSequence s) {
+        return POOL.intern(s);
+    }
+
+    /**
+     * Returns a canonical instance of the given range of characters from the
+     * shared pool. See {@link #intern(CharSequence)}.
+     */
+    public static String intern(char[] chars, int offset, int length) {
+        return POOL.intern(chars, offset, length);
+    }
+
     /**
      * Returns true if the given string is null, empty, or consists of only
      * whitespace.
      */
     public static boolean isBlank(String s) {
-        return s == null || s.trim().length() == 0;
+        return s == null || firstNonWhitespace(s) < 0;
     }
 
     /**
@@ -39,10 +438,26 @@ public final class StringUtils {
      * given list, separated by the given separator.
      */
     public static String join(String separator, List<?> items) {
+        return join(separator, items, false);
+    }
+
+    /**
+     * Returns a string containing the string representation of each item in the
+     * given list, separated by the given separator.
+     *
+     * If parallel is true, random-access lists of more than a few thousand
+     * items are formatted in segments on the common fork-join pool. Item
+     * toString methods must then be safe to call from multiple threads.
+     */
+    public static String join(String separator, List<?> items, boolean parallel) {
 
         assert separator != null;
         assert items != null;
 
+        if (parallel && items instanceof RandomAccess && items.size() > JOIN_SEGMENT_SIZE) {
+            return parallelJoin(separator, items);
+        }
+
         StringBuilder sb = new StringBuilder();
         boolean first = true;
         for (Object item : items) {
@@ -70,6 +485,257 @@ public final class StringUtils {
         return join(separator, Arrays.asList(items));
     }
 
+    /**
+     * Formats fixed-size segments of the list on the common fork-join pool,
+     * then copies them into a builder sized to the exact length of the
+     * result, so that it never has to grow. This is not a single allocation:
+     * toString copies the builder's contents once more, since a String never
+     * shares the array it is built from.
+     */
+    private static String parallelJoin(final String separator, final List<?> items) {
+
+        final StringBuilder[] segments = new StringBuilder[(items.size() + JOIN_SEGMENT_SIZE - 1) / JOIN_SEGMENT_SIZE];
+
+        ObjectUtils.forEachRange(items.size(), 0, JOIN_SEGMENT_SIZE, (from, to) -> {
+            StringBuilder sb = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                if (i > from) {
+                    sb.append(separator);
+                }
+                sb.append(items.get(i));
+            }
+            segments[from / JOIN_SEGMENT_SIZE] = sb;
+        });
+
+        long length = (long) (segments.length - 1) * separator.length();
+        for (StringBuilder segment : segments) {
+            length += segment.length();
+        }
+
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Joined string would have " + length + " characters");
+        }
+
+        StringBuilder result = new StringBuilder((int) length);
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                result.append(separator);
+            }
+            result.append(segments[i]);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Returns the text with each occurrence of a search string replaced by
+     * the corresponding replacement, in a single pass. See
+     * {@link StringReplacer} for how overlapping matches are resolved. This
+     * compiles the search strings on each call; code that applies the same
+     * replacements repeatedly should create a StringReplacer once and reuse
+     * it.
+     *
+     * @throws IllegalArgumentException
+     *             if the arrays are of different lengths.
+     */
+    public static String replaceEach(String text, String[] search, String[] replace) {
+        assert text != null;
+        return new StringReplacer(search, replace).replace(text);
+    }
+
+    /**
+     * Splits a sequence into the tokens separated by the given delimiter. This
+     * is the inverse of {@link #join(String, List)}: every delimiter
+     * separates two tokens, so empty tokens are returned, including leading
+     * and trailing ones, and an empty sequence yields a single empty token.
+     * Unlike String.split, no regular expression is involved and no strings
+     * are created; each token is a view of the original sequence.
+     */
+    public static List<StringSlice> split(CharSequence s, char delimiter) {
+
+        assert s != null;
+
+        List<StringSlice> result = new ArrayList<StringSlice>();
+        int start = 0;
+        for (int i = indexOf(s, delimiter, 0); i >= 0; i = indexOf(s, delimiter, start)) {
+            result.add(new StringSlice(s, start, i));
+            start = i + 1;
+        }
+        result.add(new StringSlice(s, start, s.length()));
+        return result;
+    }
+
+    /**
+     * Splits a sequence into the tokens separated by the given literal
+     * delimiter. See {@link #split(CharSequence, char)}.
+     *
+     * @throws IllegalArgumentException
+     *             if the delimiter is empty.
+     */
+    public static List<StringSlice> split(CharSequence s, String delimiter) {
+
+        assert s != null;
+        checkDelimiter(delimiter);
+
+        List<StringSlice> result = new ArrayList<StringSlice>();
+        int start = 0;
+        for (int i = indexOf(s, delimiter, 0); i >= 0; i = indexOf(s, delimiter, start)) {
+            result.add(new StringSlice(s, start, i));
+            start = i + delimiter.length();
+        }
+        result.add(new StringSlice(s, start, s.length()));
+        return result;
+    }
+
+    /**
+     * Splits the characters read from a reader into the tokens separated by
+     * the given delimiter, passing each to the handler as it is found. Tokens
+     * are as described in {@link #split(CharSequence, char)}. Only the
+     * current token is held in memory, so the input can be larger than the
+     * heap. The reader is not closed.
+     */
+    public static void split(Reader reader, char delimiter, TokenHandler handler) {
+
+        assert reader != null;
+        assert handler != null;
+
+        char[] buffer = new char[IOUtils.CHAR_BUFFER_SIZE];
+        StringBuilder token = new StringBuilder();
+
+        try {
+            int count;
+            while ((count = reader.read(buffer)) >= 0) {
+                int start = 0;
+                for (int i = 0; i < count; i++) {
+                    if (buffer[i] == delimiter) {
+                        token.append(buffer, start, i - start);
+                        handler.handleToken(token);
+                        token.setLength(0);
+                        start = i + 1;
+                    }
+                }
+                token.append(buffer, start, count - start);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        handler.handleToken(token);
+    }
+
+    /**
+     * Splits the characters read from a reader into the tokens separated by
+     * the given literal delimiter. See
+     * {@link #split(Reader, char, TokenHandler)}. Delimiters may span reads.
+     *
+     * @throws IllegalArgumentException
+     *             if the delimiter is empty.
+     */
+    public static void split(Reader reader, String delimiter, TokenHandler handler) {
+
+        assert reader != null;
+        assert handler != null;
+        checkDelimiter(delimiter);
+
+        int length = delimiter.length();
+        char last = delimiter.charAt(length - 1);
+        char[] buffer = new char[IOUtils.CHAR_BUFFER_SIZE];
+        StringBuilder token = new StringBuilder();
+
+        try {
+            int count;
+            while ((count = reader.read(buffer)) >= 0) {
+                for (int i = 0; i < count; i++) {
+                    char c = buffer[i];
+                    token.append(c);
+                    if (c == last && endsWith(token, delimiter)) {
+                        token.setLength(token.length() - length);
+                        handler.handleToken(token);
+                        token.setLength(0);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        handler.handleToken(token);
+    }
+
+    private static boolean endsWith(StringBuilder sb, String suffix) {
+        int offset = sb.length() - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sb.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkDelimiter(String delimiter) {
+        assert delimiter != null;
+        if (delimiter.length() == 0) {
+            throw new IllegalArgumentException("Delimiter must not be empty");
+        }
+    }
+
+    /**
+     * Splits a sequence as described in {@link #split(CharSequence, char)},
+     * but instead of creating slices stores the start and end offsets of each
+     * token in the given array: offsets[2 * n] and offsets[2 * n + 1] are the
+     * start (inclusive) and end (exclusive) of the nth token. Tokens that
+     * don't fit in the array are counted but not stored, so a caller can
+     * retry with a larger array if the result is more than offsets.length / 2.
+     *
+     * @return the number of tokens in the sequence.
+     */
+    public static int tokenize(CharSequence s, char delimiter, int[] offsets) {
+
+        assert s != null;
+        assert offsets != null;
+
+        int tokens = 0;
+        int start = 0;
+        for (int i = indexOf(s, delimiter, 0); i >= 0; i = indexOf(s, delimiter, start)) {
+            tokens = storeToken(offsets, tokens, start, i);
+            start = i + 1;
+        }
+        return storeToken(offsets, tokens, start, s.length());
+    }
+
+    /**
+     * Finds the offsets of the tokens separated by the given literal
+     * delimiter. See {@link #tokenize(CharSequence, char, int[])}.
+     *
+     * @throws IllegalArgumentException
+     *             if the delimiter is empty.
+     */
+    public static int tokenize(CharSequence s, String delimiter, int[] offsets) {
+
+        assert s != null;
+        assert offsets != null;
+        checkDelimiter(delimiter);
+
+        int tokens = 0;
+        int start = 0;
+        for (int i = indexOf(s, delimiter, 0); i >= 0; i = indexOf(s, delimiter, start)) {
+            tokens = storeToken(offsets, tokens, start, i);
+            start = i + delimiter.length();
+        }
+        return storeToken(offsets, tokens, start, s.length());
+    }
+
+    private static int storeToken(int[] offsets, int tokens, int start, int end) {
+        if (2 * tokens + 1 < offsets.length) {
+            offsets[2 * tokens] = start;
+            offsets[2 * tokens + 1] = end;
+        }
+        return tokens + 1;
+    }
+
     /**
      * Array-aware toString method. If the given value is an array, passes it to
      * one of the toString classes in the JDK's Arrays class, else returns the
@@ -101,6 +767,38 @@ public final class StringUtils {
         }
     }
 
+    /**
+     * Returns the number of bytes in the UTF-8 encoding of a sequence,
+     * without encoding it, e.g. to size a buffer or set a Content-Length
+     * header before calling {@link IOUtils#write(CharSequence, java.io.OutputStream, java.nio.charset.Charset)}.
+     * Unpaired surrogates are counted as one byte, since they are encoded as
+     * '?'.
+     */
+    public static long utf8Length(CharSequence s) {
+
+        assert s != null;
+
+        int length = s.length();
+        long bytes = length;
+
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // Four bytes for the pair
+                    bytes += 2;
+                    i++;
+                }
+            }
+        }
+
+        return bytes;
+    }
+
     private StringUtils() {
     }
 }
@@ -0,0 +1,459 @@
+package ca.krasnay.javautils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a growing text file, like tail -f, passing each complete line
+ * appended to the file to a {@link TokenHandler}.
+ *
+ * The reader remembers its offset in the file, so each call reads only the
+ * bytes appended since the last, into a buffer that is reused. Lines are
+ * decoded as UTF-8 into a reused character buffer, so the handler must copy
+ * a line, e.g. with toString, if it needs to keep it. A trailing line
+ * without a line feed is held back until its line feed is written.
+ *
+ * {@link #await(long, TimeUnit, TokenHandler)} waits for changes using a
+ * WatchService on the file's directory rather than polling. Where the
+ * platform supports it, the reader is then woken as soon as the file
+ * changes. All readers on a file system share a single WatchService, since
+ * each one may hold operating system resources, such as an inotify instance
+ * on Linux, of which a user may only have a few.
+ *
+ * The reader handles log rotation and truncation. If the file is replaced,
+ * e.g. renamed away and a new one created, the rest of the old file is read
+ * and the reader moves to the start of the new one. If the file gets
+ * shorter, or its first 64 bytes change, the reader starts again from its
+ * beginning. A file that is truncated and rewritten past the reader's offset
+ * with the same first 64 bytes is therefore read from the middle. Replacement
+ * is detected using the file key of the file system, so on platforms without
+ * file keys only truncation is detected.
+ *
+ * Readers are not thread-safe.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public final class TailReader implements Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 65536;
+
+    /**
+     * Number of bytes at the start of the file compared on each poll to
+     * detect that the file was truncated and rewritten.
+     */
+    private static final int HEAD_SIZE = 64;
+
+    private final Path path;
+
+    /**
+     * Released by the watcher each time the file may have changed.
+     */
+    private final Semaphore changed = new Semaphore(0);
+
+    private Watcher watcher;
+
+    private WatchKey watchKey;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private CharBuffer chars = CharBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private FileChannel channel;
+
+    private Object fileKey;
+
+    /**
+     * Offset in the file of the next byte to read. The buffer holds the
+     * bytes of any incomplete line before this offset.
+     */
+    private long position;
+
+    /**
+     * The first bytes of the file, as far as they have been read.
+     */
+    private final byte[] head = new byte[HEAD_SIZE];
+
+    private int headLength;
+
+    private final ByteBuffer headCheck = ByteBuffer.allocate(HEAD_SIZE);
+
+    /**
+     * Creates a reader that starts at the current end of the file, or at the
+     * start of the file once it is created if it does not yet exist.
+     */
+    public TailReader(File file) {
+        this(file, -1);
+    }
+
+    /**
+     * Creates a reader that starts at the given offset of the file, usually
+     * one previously returned by {@link #getOffset()}. An offset of -1 means
+     * the current end of the file. If the file is now shorter than the
+     * offset, reading starts at the beginning.
+     */
+    public TailReader(File file, long offset) {
+
+        this.path = file.toPath().toAbsolutePath();
+
+        try {
+            Watcher.register(this);
+
+            if (openFile()) {
+                long size = channel.size();
+                position = offset < 0 ? size : offset <= size ? offset : 0;
+            }
+        } catch (IOException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Waits up to the given time for new lines, passing them to the handler.
+     * Returns as soon as there are any new lines.
+     *
+     * @return the number of lines passed to the handler, zero if none were
+     *         appended in time.
+     */
+    public int await(long timeout, TimeUnit unit, TokenHandler handler) throws InterruptedException {
+
+        int lines = poll(handler);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining;
+
+        while (lines == 0 && watcher != null && (remaining = deadline - System.nanoTime()) > 0) {
+
+            if (!changed.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                break;
+            }
+            changed.drainPermits();
+
+            lines = poll(handler);
+        }
+
+        return lines;
+    }
+
+    /**
+     * Closes the file and stops watching for changes.
+     */
+    public void close() {
+        IOUtils.close(channel);
+        channel = null;
+        if (watcher != null) {
+            watcher.unregister(this);
+            watcher = null;
+        }
+    }
+
+    /**
+     * Returns the offset in the file just after the last complete line
+     * passed to a handler. A new reader created with this offset resumes
+     * where this one left off.
+     */
+    public long getOffset() {
+        return position - buffer.position();
+    }
+
+    /**
+     * Passes any complete lines appended since the last call to the handler,
+     * without waiting.
+     *
+     * @return the number of lines passed to the handler.
+     */
+    public int poll(TokenHandler handler) {
+
+        assert handler != null;
+
+        try {
+            int lines = 0;
+
+            if (channel == null) {
+                if (!openFile()) {
+                    return 0;
+                }
+                position = 0;
+            } else if (isReplaced()) {
+                // Finish the old file, including any final line without a
+                // line feed, then move to the new one
+                lines += readAvailable(handler);
+                if (buffer.position() > 0) {
+                    lines += deliver(buffer.array(), 0, buffer.position(), handler);
+                    buffer.clear();
+                }
+                IOUtils.close(channel);
+                channel = null;
+                if (!openFile()) {
+                    return lines;
+                }
+                position = 0;
+            }
+
+            if (channel.size() < position || isRewritten()) {
+                position = 0;
+                headLength = 0;
+                buffer.clear();
+            }
+
+            return lines + readAvailable(handler);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Opens the file if it exists, returning false if it doesn't.
+     */
+    private boolean openFile() throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            headLength = 0;
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if the path now refers to a different file from the one
+     * open, or to no file at all.
+     */
+    private boolean isReplaced() throws IOException {
+        try {
+            Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            return key != null && !key.equals(fileKey);
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Returns true if the first bytes of the file differ from those seen
+     * before, and remembers any more of them that are now known.
+     */
+    private boolean isRewritten() throws IOException {
+
+        headCheck.clear();
+        headCheck.limit((int) Math.min(HEAD_SIZE, position));
+        while (headCheck.hasRemaining() && channel.read(headCheck, headCheck.position()) > 0) {
+        }
+
+        int length = headCheck.position();
+        if (length < headLength || !Arrays.equals(head, 0, headLength, headCheck.array(), 0, headLength)) {
+            return true;
+        }
+
+        System.arraycopy(headCheck.array(), headLength, head, headLength, length - headLength);
+        headLength = length;
+        return false;
+    }
+
+    /**
+     * Reads to the end of the open file, passing complete lines to the
+     * handler and keeping any incomplete line at the start of the buffer.
+     */
+    private int readAvailable(TokenHandler handler) throws IOException {
+
+        int lines = 0;
+
+        while (true) {
+
+            if (!buffer.hasRemaining()) {
+                // A single line longer than the buffer
+                ByteBuffer grown = ByteBuffer.allocate(2 * buffer.capacity());
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return lines;
+            }
+
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+
+            if (headLength == position && headLength < HEAD_SIZE) {
+                int n = Math.min(read, HEAD_SIZE - headLength);
+                System.arraycopy(bytes, end - read, head, headLength, n);
+                headLength += n;
+            }
+            position += read;
+            int start = 0;
+
+            for (int i = IOUtils.indexOf(bytes, 0, end, (byte) '\n'); i >= 0; i = IOUtils.indexOf(bytes, start, end, (byte) '\n')) {
+                lines += deliver(bytes, start, i, handler);
+                start = i + 1;
+            }
+
+            // Keep the incomplete line
+            System.arraycopy(bytes, start, bytes, 0, end - start);
+            buffer.position(end - start);
+        }
+    }
+
+    /**
+     * Decodes a line, less any trailing carriage return, and passes it to
+     * the handler.
+     */
+    private int deliver(byte[] bytes, int start, int end, TokenHandler handler) {
+
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+
+        int maxChars = end - start;
+        if (chars.capacity() < maxChars) {
+            chars = CharBuffer.allocate(Math.max(maxChars, 2 * chars.capacity()));
+        }
+
+        chars.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(bytes, start, end - start), chars, true);
+        decoder.flush(chars);
+        chars.flip();
+
+        handler.handleToken(chars);
+        return 1;
+    }
+
+    /**
+     * WatchService shared by all readers on a file system, with a daemon
+     * thread that wakes the readers of each file that changes. The service
+     * is closed when its last reader is closed.
+     */
+    private static final class Watcher implements Runnable {
+
+        private static final Map<FileSystem, Watcher> watchers = new HashMap<FileSystem, Watcher>();
+
+        private final FileSystem fileSystem;
+
+        private final WatchService service;
+
+        // Guarded by watchers
+
+        private final Map<WatchKey, List<TailReader>> readers = new HashMap<WatchKey, List<TailReader>>();
+
+        private Watcher(FileSystem fileSystem) throws IOException {
+            this.fileSystem = fileSystem;
+            this.service = fileSystem.newWatchService();
+        }
+
+        /**
+         * Starts watching the directory of the reader's file.
+         */
+        static void register(TailReader reader) throws IOException {
+
+            synchronized (watchers) {
+
+                FileSystem fileSystem = reader.path.getFileSystem();
+                Watcher watcher = watchers.get(fileSystem);
+
+                if (watcher == null) {
+                    watcher = new Watcher(fileSystem);
+                    Thread thread = new Thread(watcher, TailReader.class.getSimpleName() + "-watcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                    watchers.put(fileSystem, watcher);
+                }
+
+                try {
+                    // Returns the existing key if the directory is already watched
+                    WatchKey key = reader.path.getParent().register(watcher.service,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+                    watcher.readers.computeIfAbsent(key, k -> new ArrayList<TailReader>()).add(reader);
+                    reader.watcher = watcher;
+                    reader.watchKey = key;
+                } finally {
+                    if (watcher.readers.isEmpty()) {
+                        watcher.shutdown();
+                    }
+                }
+            }
+        }
+
+        void unregister(TailReader reader) {
+            synchronized (watchers) {
+                List<TailReader> list = readers.get(reader.watchKey);
+                list.remove(reader);
+                if (list.isEmpty()) {
+                    readers.remove(reader.watchKey);
+                    reader.watchKey.cancel();
+                }
+                if (readers.isEmpty()) {
+                    shutdown();
+                }
+            }
+        }
+
+        private void shutdown() {
+            watchers.remove(fileSystem);
+            IOUtils.close(service);
+        }
+
+        public void run() {
+
+            while (true) {
+
+                WatchKey key;
+                try {
+                    key = service.take();
+                } catch (ClosedWatchServiceException | InterruptedException e) {
+                    return;
+                }
+
+                List<WatchEvent<?>> events = key.pollEvents();
+                key.reset();
+
+                synchronized (watchers) {
+                    List<TailReader> list = readers.get(key);
+                    if (list != null) {
+                        for (TailReader reader : list) {
+                            for (WatchEvent<?> event : events) {
+                                if (event.kind() == StandardWatchEventKinds.OVERFLOW || reader.path.getFileName().equals(event.context())) {
+                                    reader.changed.release();
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package ca.krasnay.javautils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Checksum;
+
+/**
+ * Copies an input stream to any number of output streams and channels in a
+ * single pass, updating message digests and checksums from the same buffer
+ * as it goes. For example, to store an upload while computing its SHA-256
+ * and CRC32C:
+ *
+ * <pre>
+ * MessageDigest sha = MessageDigest.getInstance("SHA-256");
+ * CRC32C crc = new CRC32C();
+ * long size = new TeeCopy().to(fileOut).update(sha).update(crc).copy(in);
+ * </pre>
+ *
+ * By default each buffer is written to the outputs in turn. In parallel mode,
+ * each output is written by its own thread, and the input is read ahead into
+ * a small ring of buffers, so an output that is briefly slow does not hold up
+ * the others. Outputs and the input are not closed.
+ *
+ * A TeeCopy may be reused for several copies, but digests and checksums are
+ * not reset between them.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public class TeeCopy {
+
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    /**
+     * Number of buffers read ahead in parallel mode.
+     */
+    static final int PARALLEL_BUFFERS = 4;
+
+    private List<IOUtils.ByteSink> sinks = new ArrayList<IOUtils.ByteSink>();
+
+    private List<MessageDigest> digests = new ArrayList<MessageDigest>();
+
+    private List<Checksum> checksums = new ArrayList<Checksum>();
+
+    private boolean parallel;
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /**
+     * Sets the size of the buffers used to read the input.
+     */
+    public TeeCopy bufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Copies the input to all outputs, returning the number of bytes copied.
+     * If any output fails, the copy stops and the exception is re-thrown
+     * wrapped in a RuntimeException.
+     */
+    public long copy(InputStream in) {
+
+        assert in != null;
+
+        try {
+            return parallel && sinks.size() > 1 ? copyParallel(in) : copySequential(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long copySequential(InputStream in) throws IOException {
+
+        byte[] buffer = new byte[bufferSize];
+        long total = 0;
+
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            if (count > 0) {
+                update(buffer, count);
+                for (IOUtils.ByteSink sink : sinks) {
+                    sink.write(buffer, count);
+                }
+                total += count;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Reads into a ring of buffers. Writes of each buffer are chained onto the
+     * previous write to the same output, so each output sees the buffers in
+     * order, and a buffer is refilled only once every output has written it.
+     */
+    private long copyParallel(InputStream in) throws IOException {
+
+        final byte[][] buffers = new byte[PARALLEL_BUFFERS][bufferSize];
+        CompletableFuture<?>[] bufferWritten = new CompletableFuture<?>[PARALLEL_BUFFERS];
+        CompletableFuture<?>[] sinkWritten = new CompletableFuture<?>[sinks.size()];
+
+        for (int s = 0; s < sinkWritten.length; s++) {
+            sinkWritten[s] = CompletableFuture.completedFuture(null);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(sinks.size());
+        long total = 0;
+
+        try {
+
+            for (int b = 0; ; b = (b + 1) % PARALLEL_BUFFERS) {
+
+                if (bufferWritten[b] != null) {
+                    await(bufferWritten[b]);
+                }
+
+                final byte[] buffer = buffers[b];
+                int count = in.read(buffer);
+                while (count == 0) {
+                    count = in.read(buffer);
+                }
+                if (count < 0) {
+                    break;
+                }
+
+                update(buffer, count);
+                total += count;
+
+                final int length = count;
+                for (int s = 0; s < sinkWritten.length; s++) {
+                    final IOUtils.ByteSink sink = sinks.get(s);
+                    sinkWritten[s] = sinkWritten[s].thenRunAsync(() -> {
+                        try {
+                            sink.write(buffer, length);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, executor);
+                }
+                bufferWritten[b] = CompletableFuture.allOf(sinkWritten);
+            }
+
+            await(CompletableFuture.allOf(sinkWritten));
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return total;
+    }
+
+    /**
+     * Waits for a future, re-throwing the IOException of a failed write.
+     */
+    private static void await(CompletableFuture<?> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sets whether outputs are written in parallel. Has no effect with fewer
+     * than two outputs.
+     */
+    public TeeCopy parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Adds an output channel.
+     */
+    public TeeCopy to(WritableByteChannel channel) {
+        assert channel != null;
+        sinks.add(IOUtils.sink(channel));
+        return this;
+    }
+
+    /**
+     * Adds an output stream.
+     */
+    public TeeCopy to(OutputStream out) {
+        assert out != null;
+        sinks.add(IOUtils.sink(out));
+        return this;
+    }
+
+    /**
+     * Adds a checksum to be updated with the bytes copied.
+     */
+    public TeeCopy update(Checksum checksum) {
+        assert checksum != null;
+        checksums.add(checksum);
+        return this;
+    }
+
+    /**
+     * Adds a message digest to be updated with the bytes copied.
+     */
+    public TeeCopy update(MessageDigest digest) {
+        assert digest != null;
+        digests.add(digest);
+        return this;
+    }
+
+    private void update(byte[] buffer, int count) {
+        for (MessageDigest digest : digests) {
+            digest.update(buffer, 0, count);
+        }
+        for (Checksum checksum : checksums) {
+            checksum.update(buffer, 0, count);
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package ca.krasnay.javautils;
+
+/**
+ * Receives the tokens found by {@link StringUtils#split(java.io.Reader, char, TokenHandler)}.
+ *
+ * @author John Krasnay <john@krasnay.ca>
+ */
+public interface TokenHandler {
+
+    /**
+     * Called for each token in turn. The token is only valid until this
+     * method returns, since its buffer is reused for the next token; call
+     * toString on it to keep it.
+     */
+    void handleToken(CharSequence token);
+
+}
@@ -0,0 +1,93 @@
+package ca.krasnay.javautils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import ca.krasnay.javautils.GroupCommitAppender;
+import ca.krasnay.javautils.IOUtils;
+
+import junit.framework.TestCase;
+
+public class GroupCommitAppenderTest extends TestCase {
+
+    public void testAppend() throws Exception {
+
+        File file = File.createTempFile("appender", ".log");
+        try {
+            final GroupCommitAppender appender = new GroupCommitAppender(file, 5, TimeUnit.MILLISECONDS, 1024);
+            final List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<CompletableFuture<Void>>());
+
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final int thread = t;
+                threads[t] = new Thread() {
+                    public void run() {
+                        for (int i = 0; i < 100; i++) {
+                            futures.add(appender.append("record " + thread + "-" + i + "\n", StandardCharsets.UTF_8));
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+            assertTrue(appender.getBatchCount() < 400);
+
+            CompletableFuture<Void> last = appender.append("last\n", StandardCharsets.UTF_8);
+            appender.close();
+            assertTrue(last.isDone());
+            appender.close();
+
+            try {
+                appender.append(new byte[1]);
+                fail("Expected exception");
+            } catch (IllegalStateException e) {
+            }
+
+            Set<String> lines = new HashSet<String>(Arrays.asList(IOUtils.toStringUtf8(file).split("\n")));
+            assertEquals(401, lines.size());
+            assertTrue(lines.contains("record 3-99"));
+            assertTrue(lines.contains("last"));
+
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testAppendAndCloseFromCallback() throws Exception {
+
+        File file = File.createTempFile("appender", ".log");
+        try {
+            final GroupCommitAppender appender = new GroupCommitAppender(file, 100, TimeUnit.MILLISECONDS, 8);
+            final List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<CompletableFuture<Void>>());
+
+            // The latency ensures the callback is registered before the first
+            // future completes. The second append finds the buffer full and waits for the writer
+            CompletableFuture<Void> done = appender.append("first\n", StandardCharsets.UTF_8).thenRun(() -> {
+                futures.add(appender.append("second\n", StandardCharsets.UTF_8));
+                futures.add(appender.append("third-3\n", StandardCharsets.UTF_8));
+                appender.close();
+            });
+
+            done.get(10, TimeUnit.SECONDS);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+            assertEquals("first\nsecond\nthird-3\n", IOUtils.toStringUtf8(file));
+
+        } finally {
+            file.delete();
+        }
+    }
+
+}
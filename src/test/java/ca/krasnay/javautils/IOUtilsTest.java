@@ -0,0 +1,211 @@
+package ca.krasnay.javautils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ca.krasnay.javautils.FileHandler;
+import ca.krasnay.javautils.IOUtils;
+import ca.krasnay.javautils.StringUtils;
+
+import junit.framework.TestCase;
+
+public class IOUtilsTest extends TestCase {
+
+    private static byte[] bytes(String s) throws Exception {
+        return s.getBytes(IOUtils.UTF_8);
+    }
+
+    public void testScanning() throws Exception {
+
+        byte[] b = bytes("first line\nsecond line that is longer\r\nthird");
+
+        assertEquals(10, IOUtils.indexOfNewline(b, 0, b.length));
+        assertEquals(37, IOUtils.indexOfNewline(b, 11, b.length));
+        assertEquals(38, IOUtils.indexOfNewline(b, 38, b.length));
+        assertEquals(-1, IOUtils.indexOfNewline(b, 39, b.length));
+        assertEquals(-1, IOUtils.indexOfNewline(b, 0, 10));
+
+        // Every position, so both the word and tail loops are exercised
+        for (int i = 0; i < b.length; i++) {
+            int expected = -1;
+            for (int j = i; j < b.length; j++) {
+                if (b[j] == 'e') {
+                    expected = j;
+                    break;
+                }
+            }
+            assertEquals(expected, IOUtils.indexOf(b, i, b.length, (byte) 'e'));
+        }
+
+        assertEquals(4, IOUtils.countOf(b, 0, b.length, (byte) 'e'));
+        assertEquals(0, IOUtils.countOf(b, 0, 3, (byte) 'e'));
+
+        byte[] high = { 1, (byte) 0x80, (byte) 0xff, 0, 0, 0, 0, 0, (byte) 0xff, 0x7f };
+        assertEquals(2, IOUtils.indexOf(high, 0, high.length, (byte) 0xff));
+        assertEquals(2, IOUtils.countOf(high, 0, high.length, (byte) 0xff));
+        assertEquals(5, IOUtils.countOf(high, 0, high.length, (byte) 0));
+        assertEquals(1, IOUtils.indexOf(high, 0, high.length, (byte) 0x80));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(b.length);
+        buffer.put(b);
+        buffer.position(11);
+        assertEquals(37, IOUtils.indexOfNewline(buffer));
+        assertEquals(11, buffer.position());
+        buffer.limit(20);
+        assertEquals(-1, IOUtils.indexOfNewline(buffer));
+
+        try {
+            IOUtils.indexOf(b, 5, b.length + 1, (byte) 'e');
+            fail("Expected exception");
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    private static void assertWrite(String s, Charset charset) throws Exception {
+
+        byte[] expected = s.getBytes(charset);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.write(s, out, charset);
+        assertTrue(charset + ": " + s, Arrays.equals(expected, out.toByteArray()));
+
+        out.reset();
+        IOUtils.write(new StringBuilder(s), Channels.newChannel(out), charset);
+        assertTrue(charset + ": " + s, Arrays.equals(expected, out.toByteArray()));
+
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            assertEquals(expected.length, StringUtils.utf8Length(s));
+        }
+    }
+
+    public void testWrite() throws Exception {
+
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            big.append("abc \u00e9\u20ac\ud83d\ude00 ");
+        }
+
+        String[] samples = {
+                "",
+                "plain ascii",
+                "caf\u00e9 \u20ac10 \ud83d\ude00",
+                "unpaired \ud800 high and \udc00 low\ud800",
+                big.toString(),
+        };
+
+        Charset[] charsets = {
+                StandardCharsets.UTF_8,
+                StandardCharsets.US_ASCII,
+                StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_16BE,
+        };
+
+        for (Charset charset : charsets) {
+            for (String s : samples) {
+                assertWrite(s, charset);
+            }
+        }
+
+        File file = File.createTempFile("ioutils", ".txt");
+        try {
+            IOUtils.writeUtf8(samples[2], file);
+            assertEquals(samples[2], IOUtils.toStringUtf8(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void deleteTree(Path root) throws Exception {
+        if (Files.isDirectory(root)) {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(root)) {
+                for (Path child : children) {
+                    deleteTree(child);
+                }
+            }
+        }
+        Files.deleteIfExists(root);
+    }
+
+    public void testCopyTree() throws Exception {
+
+        Path source = Files.createTempDirectory("source");
+        Path target = Files.createTempDirectory("target").resolve("nested/copy");
+
+        try {
+            Files.createDirectories(source.resolve("empty/dir"));
+            for (int i = 0; i < 200; i++) {
+                Path file = source.resolve("d" + (i % 7) + "/sub" + (i % 3) + "/file" + i + ".txt");
+                Files.createDirectories(file.getParent());
+                IOUtils.writeUtf8("contents " + i, file.toFile());
+            }
+
+            IOUtils.copyTree(source, target, 4);
+
+            assertTrue(Files.isDirectory(target.resolve("empty/dir")));
+            for (int i = 0; i < 200; i++) {
+                Path file = target.resolve("d" + (i % 7) + "/sub" + (i % 3) + "/file" + i + ".txt");
+                assertEquals("contents " + i, IOUtils.toStringUtf8(file.toFile()));
+            }
+
+            // Copying again replaces existing files
+            IOUtils.writeUtf8("changed", source.resolve("d0/sub0/file0.txt").toFile());
+            IOUtils.copyTree(source, target);
+            assertEquals("changed", IOUtils.toStringUtf8(target.resolve("d0/sub0/file0.txt").toFile()));
+
+            final AtomicInteger count = new AtomicInteger();
+            IOUtils.forEachFile(target, 3, new FileHandler() {
+                public void handleFile(Path file, BasicFileAttributes attributes) {
+                    count.incrementAndGet();
+                }
+            });
+            assertEquals(200, count.get());
+
+            try {
+                IOUtils.forEachFile(source, 2, new FileHandler() {
+                    public void handleFile(Path file, BasicFileAttributes attributes) throws IOException {
+                        throw new IOException("failed " + file.getFileName());
+                    }
+                });
+                fail("Expected exception");
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+
+            // Files queued while the first one fails are not handled
+            final AtomicInteger calls = new AtomicInteger();
+            try {
+                IOUtils.forEachFile(source, 1, new FileHandler() {
+                    public void handleFile(Path file, BasicFileAttributes attributes) throws IOException {
+                        if (calls.getAndIncrement() == 0) {
+                            try {
+                                Thread.sleep(100);
+                            } catch (InterruptedException e) {
+                            }
+                            throw new IOException("failed " + file.getFileName());
+                        }
+                    }
+                });
+                fail("Expected exception");
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertEquals(1, calls.get());
+
+        } finally {
+            deleteTree(source);
+            deleteTree(target.getParent().getParent());
+        }
+    }
+
+}
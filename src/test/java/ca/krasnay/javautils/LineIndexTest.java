@@ -0,0 +1,123 @@
+package ca.krasnay.javautils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import ca.krasnay.javautils.IOUtils;
+import ca.krasnay.javautils.LineIndex;
+
+import junit.framework.TestCase;
+
+public class LineIndexTest extends TestCase {
+
+    public void testReadLines() throws Exception {
+
+        File file = File.createTempFile("lines", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 5000; i++) {
+                sb.append("line ").append(i);
+                // Some long lines so that lines span read buffers
+                if (i % 1000 == 7) {
+                    for (int j = 0; j < 20000; j++) {
+                        sb.append('x');
+                    }
+                }
+                sb.append(i % 2 == 0 ? "\n" : "\r\n");
+            }
+            IOUtils.writeUtf8(sb, file);
+
+            LineIndex index = LineIndex.build(file, 10);
+            assertEquals(5000, index.getLineCount());
+            assertEquals("line 0", index.readLine(0));
+            assertEquals("line 1", index.readLine(1));
+            assertEquals("line 4321", index.readLine(4321));
+            assertEquals(20009, index.readLine(1007).length());
+            assertEquals(Arrays.asList("line 1006", index.readLine(1007), "line 1008"), index.readLines(1006, 3));
+            assertEquals(Arrays.asList("line 4998", "line 4999"), index.readLines(4998, 10));
+
+            try {
+                index.readLine(5000);
+                fail("Expected exception");
+            } catch (IndexOutOfBoundsException e) {
+            }
+
+            index.save();
+            index.close();
+
+            // Grow the file, including a final line without a line feed
+            OutputStream out = new FileOutputStream(file, true);
+            IOUtils.writeUtf8("line 5000\nline 5001", out);
+            out.close();
+
+            index = LineIndex.open(file);
+            assertEquals(5002, index.getLineCount());
+            assertEquals("line 5001", index.readLine(5001));
+            assertEquals("line 2999", index.readLine(2999));
+            index.close();
+
+            // Replace the file with different content
+            IOUtils.writeUtf8("a\nb\n", file);
+            index = LineIndex.open(file);
+            assertEquals(2, index.getLineCount());
+            assertEquals("b", index.readLine(1));
+            index.close();
+
+        } finally {
+            file.delete();
+            LineIndex.indexFileFor(file).delete();
+        }
+    }
+
+    /**
+     * Overwrites an int of the saved index at the given offset.
+     */
+    private static void corrupt(File file, long offset, int value) throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(LineIndex.indexFileFor(file), "rw");
+        try {
+            raf.seek(offset);
+            raf.writeInt(value);
+        } finally {
+            raf.close();
+        }
+    }
+
+    public void testOpenCorrupt() throws Exception {
+
+        File file = File.createTempFile("lines", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                sb.append("line ").append(i).append('\n');
+            }
+            IOUtils.writeUtf8(sb, file);
+
+            // Offsets of the interval, the high word of the last line start,
+            // and the checkpoint count
+            long[] offsets = { 8, 20, 48, 48 };
+            int[] values = { 0, 1, -1, Integer.MAX_VALUE };
+
+            for (int i = 0; i < offsets.length; i++) {
+
+                LineIndex index = LineIndex.build(file, 10);
+                index.save();
+                index.close();
+
+                corrupt(file, offsets[i], values[i]);
+
+                index = LineIndex.open(file);
+                assertEquals(100, index.getLineCount());
+                assertEquals("line 57", index.readLine(57));
+                index.close();
+            }
+
+        } finally {
+            file.delete();
+            LineIndex.indexFileFor(file).delete();
+        }
+    }
+
+}
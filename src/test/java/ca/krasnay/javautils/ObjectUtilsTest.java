@@ -1,10 +1,96 @@
 package ca.krasnay.javautils;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import ca.krasnay.javautils.ObjectUtils;
 import junit.framework.TestCase;
 
 public class ObjectUtilsTest extends TestCase {
 
+    private static class Point {
+
+        private String label;
+        private int x;
+        private double y;
+        private int[] tags;
+        private transient Object cache;
+
+        Point(String label, int x, double y, int... tags) {
+            this.label = label;
+            this.x = x;
+            this.y = y;
+            this.tags = tags;
+        }
+    }
+
+    private static class Point3 extends Point {
+
+        private long z;
+
+        Point3(String label, int x, double y, long z) {
+            super(label, x, y);
+            this.z = z;
+        }
+    }
+
+    private static class Segment {
+
+        private Point a;
+        private Point b;
+
+        Segment(Point a, Point b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    private static class Listing {
+
+        private List<Point> items;
+        private Point first;
+
+        Listing(Point first) {
+            this.items = Arrays.asList(first);
+            this.first = first;
+        }
+    }
+
+    private static class Names extends ArrayList<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        Names(String... names) {
+            super(Arrays.asList(names));
+        }
+    }
+
+    private static class Node {
+
+        private String name;
+        private Node parent;
+        private List<Node> children = new ArrayList<Node>();
+
+        Node(String name, Node parent) {
+            this.name = name;
+            this.parent = parent;
+            if (parent != null) {
+                parent.children.add(this);
+            }
+        }
+    }
+
+    private static Node tree(String childName, int childCount) {
+        Node root = new Node("root", null);
+        for (int i = 0; i < childCount; i++) {
+            new Node(i == childCount / 2 ? childName : "child", root);
+        }
+        return root;
+    }
+
     public void testCloneSerializable() {
         assertNull(ObjectUtils.cloneSerializable(null));
 
@@ -14,6 +100,99 @@ public class ObjectUtilsTest extends TestCase {
         assertNotSame(p, q);
     }
 
+    public void testCloneSerializableReusesBuffer() {
+
+        // Large enough to grow the per-thread buffer, then small again
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append(i);
+        }
+        String big = sb.toString();
+
+        assertEquals(big, ObjectUtils.cloneSerializable(big));
+        assertEquals(Arrays.asList(1, 2), ObjectUtils.cloneSerializable(new ArrayList<Integer>(Arrays.asList(1, 2))));
+        assertEquals("foo", ObjectUtils.cloneSerializable("foo"));
+    }
+
+    public void testCloneAll() {
+
+        ArrayList<String> shared = new ArrayList<String>(Arrays.asList("x"));
+        List<Serializable> clones = ObjectUtils.cloneAll(Arrays.asList("foo", null, shared, new Object[] { shared }));
+
+        assertEquals(4, clones.size());
+        assertEquals("foo", clones.get(0));
+        assertNull(clones.get(1));
+        assertEquals(shared, clones.get(2));
+        assertNotSame(shared, clones.get(2));
+        assertSame(clones.get(2), ((Object[]) clones.get(3))[0]);
+
+        assertTrue(ObjectUtils.cloneAll(Collections.<String>emptyList()).isEmpty());
+    }
+
+    public void testDiff() {
+
+        ReflectionUtilsTest.FirstLevelClass before = new ReflectionUtilsTest.FirstLevelClass();
+        ReflectionUtilsTest.FirstLevelClass after = new ReflectionUtilsTest.FirstLevelClass();
+        ReflectionUtils.setFieldValue(before, "secondLevelSimpleField", new ReflectionUtilsTest.SecondLevelClass());
+        ReflectionUtils.setFieldValue(after, "secondLevelSimpleField", new ReflectionUtilsTest.SecondLevelClass());
+        ReflectionUtils.setDeepFieldValue(before, "secondLevelSimpleField.thirdLevelSimpleField", new ReflectionUtilsTest.ThirdLevelClass());
+        ReflectionUtils.setDeepFieldValue(after, "secondLevelSimpleField.thirdLevelSimpleField", new ReflectionUtilsTest.ThirdLevelClass());
+
+        assertEquals(Collections.emptyList(), ObjectUtils.diff(before, after));
+        assertEquals(Collections.emptyList(), ObjectUtils.diff(before, before));
+
+        String path = "secondLevelSimpleField.thirdLevelSimpleField.value";
+        ReflectionUtils.setDeepFieldValue(after, path, 42);
+        assertEquals(Arrays.asList(path), ObjectUtils.diff(before, after));
+        assertEquals(42, ReflectionUtils.getDeepFieldValue(after, path));
+
+        assertEquals(Arrays.asList(""), ObjectUtils.diff(null, after));
+        assertEquals(Arrays.asList(""), ObjectUtils.diff("foo", "bar"));
+
+        Point p1 = new Point("a", 1, 2.0, 1, 2);
+        Point p2 = new Point("b", 1, 3.0, 1, 3);
+        assertEquals(Arrays.asList("y", "label", "tags"), ObjectUtils.diff(p1, p2));
+
+        // An object shared in the first graph is compared with each of its
+        // counterparts in the second
+        Point shared = new Point("x", 0, 0);
+        assertEquals(Arrays.asList("b.label"), ObjectUtils.diff(new Segment(shared, shared), new Segment(new Point("x", 0, 0), new Point("y", 0, 0))));
+
+        // Comparing list elements stops at the first difference, which must
+        // not hide the rest of the differences elsewhere
+        assertEquals(Arrays.asList("items", "first.x", "first.label"), ObjectUtils.diff(new Listing(new Point("a", 1, 0)), new Listing(new Point("b", 2, 0))));
+    }
+
+    public void testDiffCycleThroughList() {
+
+        // Each child refers back to the root through its parent field
+        assertEquals(Collections.emptyList(), ObjectUtils.diff(tree("c", 3), tree("c", 3)));
+        assertEquals(Arrays.asList("children"), ObjectUtils.diff(tree("c", 3), tree("d", 3)));
+
+        int count = ObjectUtils.PARALLEL_DIFF_THRESHOLD * 2;
+        assertEquals(Collections.emptyList(), ObjectUtils.diff(tree("c", count), tree("c", count), true));
+        assertEquals(Arrays.asList("children"), ObjectUtils.diff(tree("c", count), tree("d", count), true));
+    }
+
+    public void testDiffParallel() {
+
+        List<Point> before = new ArrayList<Point>();
+        List<Point> after = new ArrayList<Point>();
+        for (int i = 0; i < ObjectUtils.PARALLEL_DIFF_THRESHOLD * 2; i++) {
+            before.add(new Point("p" + i, i, 0));
+            after.add(new Point("p" + i, i, 0));
+        }
+
+        Object[] b = new Object[] { before };
+        Object[] a = new Object[] { after };
+
+        assertEquals(Collections.emptyList(), ObjectUtils.diff(b, a, true));
+
+        after.get(1500).x = -1;
+        assertEquals(Arrays.asList(""), ObjectUtils.diff(b, a, true));
+        assertEquals(Arrays.asList(""), ObjectUtils.diff(b, a, false));
+    }
+
     public void testEquals() {
 
         assertTrue(ObjectUtils.equals(null, null));
@@ -38,5 +217,164 @@ public class ObjectUtilsTest extends TestCase {
         assertTrue(ObjectUtils.equals(oa1, oa2));
         assertFalse(ObjectUtils.equals(oa1, oa3));
 
+        assertTrue(ObjectUtils.equals(new String[] { "a" }, new Object[] { "a" }));
+        assertFalse(ObjectUtils.equals(ia1, "foo"));
+        assertFalse(ObjectUtils.equals("foo", ia1));
+        assertTrue(ObjectUtils.equals(new double[] { Double.NaN }, new double[] { Double.NaN }));
+
+    }
+
+    public void testHashCode() {
+
+        assertEquals(0, ObjectUtils.hashCode(null));
+        assertEquals("foo".hashCode(), ObjectUtils.hashCode("foo"));
+        assertEquals(ObjectUtils.hashCode(new int[] { 1, 2, 3 }), ObjectUtils.hashCode(new int[] { 1, 2, 3 }));
+        assertEquals(ObjectUtils.hashCode(new char[] { 'a' }), ObjectUtils.hashCode(new char[] { 'a' }));
+
+        Object[] oa1 = new Object[] { "a", new int[] { 1, 2 }, new Object[] { new long[] { 3 } } };
+        Object[] oa2 = new Object[] { "a", new int[] { 1, 2 }, new Object[] { new long[] { 3 } } };
+
+        assertEquals(Arrays.deepHashCode(oa1), ObjectUtils.deepHashCode(oa1));
+        assertEquals(ObjectUtils.hashCode(oa1), ObjectUtils.hashCode(oa2));
+        assertEquals(0, ObjectUtils.deepHashCode(null));
+    }
+
+    public void testReflectionEquals() {
+
+        Point p1 = new Point("a", 1, 2.0, 1, 2);
+        Point p2 = new Point("a", 1, 2.0, 1, 2);
+        p2.cache = "ignored";
+
+        assertTrue(ObjectUtils.reflectionEquals(null, null));
+        assertTrue(ObjectUtils.reflectionEquals(p1, p1));
+        assertTrue(ObjectUtils.reflectionEquals(p1, p2));
+        assertFalse(ObjectUtils.reflectionEquals(p1, null));
+        assertFalse(ObjectUtils.reflectionEquals(null, p1));
+        assertFalse(ObjectUtils.reflectionEquals(p1, new Point("b", 1, 2.0, 1, 2)));
+        assertFalse(ObjectUtils.reflectionEquals(p1, new Point("a", 2, 2.0, 1, 2)));
+        assertFalse(ObjectUtils.reflectionEquals(p1, new Point("a", 1, 2.5, 1, 2)));
+        assertFalse(ObjectUtils.reflectionEquals(p1, new Point("a", 1, 2.0, 1, 3)));
+        assertTrue(ObjectUtils.reflectionEquals(new Point("a", 1, Double.NaN), new Point("a", 1, Double.NaN)));
+
+        assertTrue(ObjectUtils.reflectionEquals(new Point3("a", 1, 2.0, 3), new Point3("a", 1, 2.0, 3)));
+        assertFalse(ObjectUtils.reflectionEquals(new Point3("a", 1, 2.0, 3), new Point3("a", 1, 2.0, 4)));
+        assertFalse(ObjectUtils.reflectionEquals(new Point("a", 1, 2.0), new Point3("a", 1, 2.0, 0)));
+
+        // Fields of JDK classes can't be made accessible, so their own
+        // equals is used
+        assertTrue(ObjectUtils.reflectionEquals("a", new String("a")));
+        assertFalse(ObjectUtils.reflectionEquals("a", "b"));
+        assertTrue(ObjectUtils.reflectionEquals(1000, Integer.valueOf(1000)));
+        assertFalse(ObjectUtils.reflectionEquals(1, 2));
+        assertTrue(ObjectUtils.reflectionEquals(new Names("a"), new Names("a")));
+        assertFalse(ObjectUtils.reflectionEquals(new Names("a"), new Names("b")));
+
+        assertTrue(ObjectUtils.reflectionEquals(new int[] { 1 }, new int[] { 1 }));
+        assertFalse(ObjectUtils.reflectionEquals(new int[] { 1 }, new int[] { 2 }));
+        assertTrue(ObjectUtils.reflectionEquals(new String[] { "a" }, new String[] { "a" }));
+        assertFalse(ObjectUtils.reflectionEquals(new String[] { "a" }, new String[] { "b" }));
+    }
+
+    public void testReflectionHashCode() {
+
+        Point p1 = new Point("a", 1, 2.0, 1, 2);
+        Point p2 = new Point("a", 1, 2.0, 1, 2);
+        p2.cache = "ignored";
+
+        assertEquals(0, ObjectUtils.reflectionHashCode(null));
+        assertEquals(ObjectUtils.reflectionHashCode(p1), ObjectUtils.reflectionHashCode(p2));
+        assertFalse(ObjectUtils.reflectionHashCode(p1) == ObjectUtils.reflectionHashCode(new Point("a", 1, 2.0, 1, 3)));
+
+        assertEquals("a".hashCode(), ObjectUtils.reflectionHashCode("a"));
+        assertEquals(Integer.valueOf(42).hashCode(), ObjectUtils.reflectionHashCode(42));
+        assertEquals(new Names("a").hashCode(), ObjectUtils.reflectionHashCode(new Names("a")));
+
+        assertEquals(ObjectUtils.reflectionHashCode(new int[] { 1 }), ObjectUtils.reflectionHashCode(new int[] { 1 }));
+        assertFalse(ObjectUtils.reflectionHashCode(new int[] { 1 }) == ObjectUtils.reflectionHashCode(new int[] { 2 }));
+    }
+
+    public void testRepackageArray() {
+
+        Object[] objects = new Object[] { "a", 1, null };
+        Serializable[] serializables = ObjectUtils.repackageArray(objects, Serializable.class);
+
+        assertEquals(Serializable[].class, serializables.getClass());
+        assertTrue(Arrays.equals(objects, serializables));
+        assertEquals(Object[].class, ObjectUtils.repackageArray(serializables, Object.class, true).getClass());
+
+        try {
+            ObjectUtils.repackageArray(new Object[] { "a", new Object() }, Serializable.class);
+            fail("Expected exception");
+        } catch (ArrayStoreException e) {
+        }
+
+        try {
+            ObjectUtils.repackageArray(new Object[] { "a", new Object() }, Serializable.class, true);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Actual message: " + e.getMessage(), e.getMessage().startsWith("Element 1 of type java.lang.Object"));
+        }
+    }
+
+    public void testPrimitiveArrays() {
+
+        assertNull(ObjectUtils.toPrimitive((Integer[]) null));
+        assertNull(ObjectUtils.toObject((int[]) null));
+
+        assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, ObjectUtils.toPrimitive(new Integer[] { 1, 2, 3 })));
+        assertTrue(Arrays.equals(new Integer[] { 1, 2, 3 }, ObjectUtils.toObject(new int[] { 1, 2, 3 })));
+        assertTrue(Arrays.equals(new boolean[] { true, false }, ObjectUtils.toPrimitive(new Boolean[] { true, false })));
+        assertTrue(Arrays.equals(new Character[] { 'a' }, ObjectUtils.toObject(new char[] { 'a' })));
+
+        double[] big = new double[ObjectUtils.PARALLEL_ARRAY_THRESHOLD * 2 + 7];
+        for (int i = 0; i < big.length; i++) {
+            big[i] = i;
+        }
+        Double[] boxed = ObjectUtils.toObject(big);
+        assertEquals(big.length, boxed.length);
+        assertEquals(Double.valueOf(big.length - 1), boxed[big.length - 1]);
+        assertTrue(Arrays.equals(big, ObjectUtils.toPrimitive(boxed)));
+
+        try {
+            ObjectUtils.toPrimitive(new Long[] { 1L, null });
+            fail("Expected exception");
+        } catch (NullPointerException e) {
+        }
+    }
+
+    public void testSizeOf() {
+
+        assertEquals(0, ObjectUtils.shallowSizeOf(null));
+        assertEquals(0, ObjectUtils.deepSizeOf(null));
+
+        long emptyArray = ObjectUtils.shallowSizeOf(new int[0]);
+        assertTrue(emptyArray >= 12);
+        assertEquals(0, emptyArray % 8);
+        assertTrue(ObjectUtils.shallowSizeOf(new long[10]) >= emptyArray + 80);
+
+        Point p = new Point("a", 1, 2.0, 1, 2, 3);
+        long shallow = ObjectUtils.shallowSizeOf(p);
+        long deep = ObjectUtils.deepSizeOf(p);
+        assertTrue(shallow >= 8 + 4 + 8);
+        assertTrue(deep >= shallow + ObjectUtils.shallowSizeOf(p.tags) + ObjectUtils.shallowSizeOf("a"));
+
+        // Shared references are counted once
+        Point[] twice = new Point[] { p, p };
+        assertEquals(ObjectUtils.shallowSizeOf(twice) + deep, ObjectUtils.deepSizeOf(twice));
+
+        List<Point> list = new ArrayList<Point>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(new Point("p", i, i, i));
+        }
+        long full = ObjectUtils.deepSizeOf(list);
+        long sampled = ObjectUtils.deepSizeOf(list, 10);
+        assertTrue(full > 1000 * shallow);
+        assertTrue("full " + full + " sampled " + sampled, Math.abs(full - sampled) < full / 10);
+
+        try {
+            ObjectUtils.deepSizeOf(list, 0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+        }
     }
 }
@@ -1,12 +1,23 @@
 package ca.krasnay.javautils;
 
+import java.io.File;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import ca.krasnay.javautils.ReflectionUtils;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import junit.framework.TestCase;
 
 
@@ -18,6 +29,52 @@ public class ReflectionUtilsTest extends TestCase {
         private String bar;
     }
 
+    @GenerateFieldAccessors
+    static class Accessed {
+        int count;
+        long total;
+        private String secret;
+    }
+
+    /**
+     * Hand-written equivalent of the table the annotation processor would
+     * generate for Accessed, counting the accesses made through it.
+     */
+    static class Accessed$$FieldAccessors implements FieldAccessorTable {
+
+        static int gets;
+        static int sets;
+
+        public int indexOf(String fieldName) {
+            if ("count".equals(fieldName)) {
+                return 0;
+            } else if ("total".equals(fieldName)) {
+                return 1;
+            } else {
+                return -1;
+            }
+        }
+
+        public Object get(Object object, int index) {
+            gets++;
+            return index == 0 ? (Object) ((Accessed) object).count : (Object) ((Accessed) object).total;
+        }
+
+        public boolean set(Object object, int index, Object value) {
+            if (index == 0 && value instanceof Integer) {
+                sets++;
+                ((Accessed) object).count = (Integer) value;
+                return true;
+            } else if (index == 1 && value instanceof Long) {
+                sets++;
+                ((Accessed) object).total = (Long) value;
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
     private static class Baz {
 
     }
@@ -32,6 +89,38 @@ public class ReflectionUtilsTest extends TestCase {
         private SecondLevelClass secondLevelSimpleField;
     }
 
+    private static class Entity {
+        private int id = 1;
+        private char code = 'c';
+        private Integer count = 3;
+        private String name = "entity";
+        private int version = 4;
+        private String extra = "extra";
+    }
+
+    private static class Dto {
+        private long id;
+        private int code;
+        private long count;
+        private Object name;
+        private Long version;
+        private final String extra = "final";
+    }
+
+    private static class Config {
+        private int port;
+        private Long timeoutMillis;
+        private TimeUnit unit;
+        private Duration interval;
+        private char separator;
+        private Object anything;
+        private boolean enabled;
+    }
+
+    private static class FlightRecorded {
+        private String name;
+    }
+
     private static class Foo {
 
         private String foo;
@@ -176,6 +265,25 @@ public class ReflectionUtilsTest extends TestCase {
 //        assertEquals(value+1, ReflectionUtils.getDeepFieldValue(flc, "secondLevelSimpleField.thirdLevelSimpleField.value"));
     }
 
+    public void testFieldAccessorTable() {
+
+        Accessed a = new Accessed();
+
+        ReflectionUtils.setFieldValue(a, "count", 3);
+        ReflectionUtils.setFieldValue(a, "total", 4L);
+        ReflectionUtils.setFieldValue(a, "secret", "shh");
+        assertEquals(2, Accessed$$FieldAccessors.sets);
+
+        // Widening is left to reflection
+        ReflectionUtils.setFieldValue(a, "total", 5);
+        assertEquals(2, Accessed$$FieldAccessors.sets);
+
+        assertEquals(3, ReflectionUtils.getFieldValue(a, "count"));
+        assertEquals(5L, ReflectionUtils.getFieldValue(a, "total"));
+        assertEquals("shh", ReflectionUtils.getFieldValue(a, "secret"));
+        assertEquals(2, Accessed$$FieldAccessors.gets);
+    }
+
     public void testFieldAccessIllegalFieldNames(){
 
         FirstLevelClass flc = new FirstLevelClass();
@@ -239,6 +347,246 @@ public class ReflectionUtilsTest extends TestCase {
 
     }
 
+    public void testGetFieldColumns() {
+
+        List<FirstLevelClass> rows = new ArrayList<FirstLevelClass>();
+        int count = ReflectionUtils.PARALLEL_COLUMNS_THRESHOLD + 123;
+
+        for (int i = 0; i < count; i++) {
+            FirstLevelClass flc = new FirstLevelClass();
+            if (i != 5) {
+                flc.secondLevelSimpleField = new SecondLevelClass();
+                flc.secondLevelSimpleField.thirdLevelSimpleField = new ThirdLevelClass();
+                flc.secondLevelSimpleField.thirdLevelSimpleField.value = i;
+            }
+            rows.add(flc);
+        }
+
+        FieldColumns columns = ReflectionUtils.getFieldColumns(rows.subList(0, 5), FirstLevelClass.class,
+                "secondLevelSimpleField.thirdLevelSimpleField.value", "secondLevelSimpleField.thirdLevelSimpleField");
+
+        assertEquals(5, columns.size());
+        assertEquals(2, columns.getColumnCount());
+        assertEquals(1, columns.indexOf("secondLevelSimpleField.thirdLevelSimpleField"));
+        assertTrue(Arrays.equals(new int[] { 0, 1, 2, 3, 4 }, columns.getInts(0)));
+        assertSame(rows.get(3).secondLevelSimpleField.thirdLevelSimpleField, columns.getObjects(1)[3]);
+
+        // Null intermediate
+        columns = ReflectionUtils.getFieldColumns(rows, FirstLevelClass.class, "secondLevelSimpleField.thirdLevelSimpleField");
+        assertEquals(count, columns.size());
+        assertNull(columns.getObjects(0)[5]);
+        assertSame(rows.get(count - 1).secondLevelSimpleField.thirdLevelSimpleField, columns.getObjects(0)[count - 1]);
+
+        try {
+            ReflectionUtils.getFieldColumns(rows, FirstLevelClass.class, "secondLevelSimpleField.thirdLevelSimpleField.value");
+            fail("Expected exception");
+        } catch (NullPointerException e) {
+        }
+
+        rows.remove(5);
+        columns = ReflectionUtils.getFieldColumns(rows, FirstLevelClass.class, "secondLevelSimpleField.thirdLevelSimpleField.value");
+        assertEquals(6, columns.getInts(0)[5]);
+        assertEquals(count - 1, columns.getInts(0)[count - 2]);
+
+        try {
+            ReflectionUtils.getFieldColumns(rows, FirstLevelClass.class, "secondLevelSimpleField.nope");
+            fail("Expected exception");
+        } catch (RuntimeException e) {
+        }
+    }
+
+    public void testCopyFields() {
+
+        Entity entity = new Entity();
+        Dto dto = new Dto();
+
+        // Second pass uses the cached plan
+        for (int i = 1; i <= 2; i++) {
+            entity.id = i;
+            ReflectionUtils.copyFields(entity, dto);
+
+            assertEquals((long) i, dto.id);
+            assertEquals('c', dto.code);
+            assertEquals(3L, dto.count);
+            assertEquals("entity", dto.name);
+            assertNull(dto.version);
+            assertEquals("final", ReflectionUtils.getFieldValue(dto, "extra"));
+        }
+
+        // Nothing is copied if a null would go into a primitive field
+        entity.id = 99;
+        entity.count = null;
+        try {
+            ReflectionUtils.copyFields(entity, dto);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(2L, dto.id);
+        assertEquals(3L, dto.count);
+
+        Bar bar = new Bar();
+        ReflectionUtils.setFieldValue(bar, "foo", "x");
+        Bar bar2 = new Bar();
+        ReflectionUtils.copyFields(bar, bar2);
+        assertEquals("x", ReflectionUtils.getFieldValue(bar2, "foo"));
+    }
+
+    public void testSetFieldValueWithConverters() {
+
+        ConverterRegistry converters = new ConverterRegistry();
+        Config config = new Config();
+
+        for (int i = 0; i < 2; i++) {
+            ReflectionUtils.setFieldValue(config, "port", " 8080 ", converters);
+            ReflectionUtils.setFieldValue(config, "timeoutMillis", "5000", converters);
+            ReflectionUtils.setFieldValue(config, "unit", "HOURS", converters);
+            ReflectionUtils.setFieldValue(config, "interval", "PT30S", converters);
+            ReflectionUtils.setFieldValue(config, "separator", ",", converters);
+            ReflectionUtils.setFieldValue(config, "anything", "x", converters);
+        }
+
+        assertEquals(8080, config.port);
+        assertEquals(Long.valueOf(5000), config.timeoutMillis);
+        assertEquals(TimeUnit.HOURS, config.unit);
+        assertEquals(Duration.ofSeconds(30), config.interval);
+        assertEquals(',', config.separator);
+        assertEquals("x", config.anything);
+
+        // Assignable values are not converted
+        ReflectionUtils.setFieldValue(config, "port", (short) 80, converters);
+        assertEquals(80, config.port);
+        ReflectionUtils.setFieldValue(config, "timeoutMillis", null, converters);
+        assertNull(config.timeoutMillis);
+
+        try {
+            ReflectionUtils.setFieldValue(config, "port", "eighty", converters);
+            fail("Expected exception");
+        } catch (NumberFormatException e) {
+        }
+
+        try {
+            ReflectionUtils.setFieldValue(config, "interval", 30, converters);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Actual message: " + e.getMessage(), e.getMessage().contains("No converter from java.lang.Integer to java.time.Duration"));
+        }
+
+        converters.register(Number.class, Duration.class, n -> Duration.ofSeconds(n.longValue()));
+        converters.register(String.class, Integer.class, s -> s.equals("default") ? 1 : Integer.parseInt(s));
+        ReflectionUtils.setFieldValue(config, "interval", 30, converters);
+        ReflectionUtils.setFieldValue(config, "port", "default", converters);
+        assertEquals(Duration.ofSeconds(30), config.interval);
+        assertEquals(1, config.port);
+
+        assertEquals(Integer.valueOf(3), converters.convert("3", int.class));
+        assertEquals(TimeUnit.DAYS, converters.convert("DAYS", TimeUnit.class));
+
+        // Booleans must be true or false, not silently false
+        ReflectionUtils.setFieldValue(config, "enabled", " TRUE ", converters);
+        assertTrue(config.enabled);
+        assertEquals(Boolean.FALSE, converters.convert("false", Boolean.class));
+        for (String bad : new String[] { "yes", "1" }) {
+            try {
+                ReflectionUtils.setFieldValue(config, "enabled", bad, converters);
+                fail("Expected exception");
+            } catch (IllegalArgumentException e) {
+            }
+            try {
+                converters.convert(bad, boolean.class);
+                fail("Expected exception");
+            } catch (IllegalArgumentException e) {
+            }
+        }
+        assertTrue(config.enabled);
+    }
+
+    public void testFindField() throws Exception {
+
+        assertEquals(Child.class, ReflectionUtils.findField(Child.class, "field1").getDeclaringClass());
+        assertEquals("field2", ReflectionUtils.findField(Child.class, "field2").getName());
+        assertNull(ReflectionUtils.findField(Child.class, "nope"));
+        assertNull(ReflectionUtils.findField(Child.class, "nope"));
+        assertNull(ReflectionUtils.findField(Runnable.class, "nope"));
+
+        Bar bar = new Bar();
+        ReflectionUtils.setFieldValue(bar, "foo", "x");
+        assertEquals("x", ReflectionUtils.tryGetFieldValue(bar, "foo", "default"));
+        assertEquals("default", ReflectionUtils.tryGetFieldValue(bar, "nope", "default"));
+        assertNull(ReflectionUtils.tryGetFieldValue(bar, "bar", "default"));
+    }
+
+    public void testFindMethod() {
+
+        assertEquals("myMethod", ReflectionUtils.findMethod(ReflectionUtilsTest.class, "myMethod").getName());
+        assertNull(ReflectionUtils.findMethod(ReflectionUtilsTest.class, "privateMethod"));
+        assertNull(ReflectionUtils.findMethod(ReflectionUtilsTest.class, "myPoorBrain"));
+    }
+
+    public void testStacklessMethodNotFound() {
+
+        Object[] noArgs = new Object[0];
+
+        try {
+            ReflectionUtils.invokeMethodByName(this, "myPoorBrain", noArgs, true);
+            fail("Expected exception");
+        } catch (MethodNotFoundException e) {
+            assertEquals(0, e.getStackTrace().length);
+            assertTrue(e.getMessage().contains("myPoorBrain"));
+        }
+
+        try {
+            ReflectionUtils.invokeMethodByName(this, "myPoorBrain", noArgs, false);
+            fail("Expected exception");
+        } catch (MethodNotFoundException e) {
+            assertTrue(e.getStackTrace().length > 0);
+        }
+
+        try {
+            ReflectionUtils.invokeMethodByName(this, "myPoorBrain");
+            fail("Expected exception");
+        } catch (MethodNotFoundException e) {
+            assertTrue(e.getStackTrace().length > 0);
+        }
+    }
+
+    public void testFlightRecorderEvents() throws Exception {
+
+        if (!JfrSupport.AVAILABLE) {
+            return;
+        }
+
+        File file = File.createTempFile("reflection", ".jfr");
+        Recording recording = new Recording();
+        try {
+            recording.enable("ca.krasnay.javautils.ReflectionCacheMiss");
+            recording.enable("ca.krasnay.javautils.ReflectiveAccess");
+            recording.start();
+
+            FlightRecorded o = new FlightRecorded();
+            ReflectionUtils.setFieldValue(o, "name", "foo");
+            assertEquals("foo", ReflectionUtils.getFieldValue(o, "name"));
+
+            recording.stop();
+            recording.dump(file.toPath());
+
+            Set<String> seen = new HashSet<String>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+                String name = event.getEventType().getName();
+                if (name.equals("ca.krasnay.javautils.ReflectionCacheMiss")
+                        && event.getClass("targetClass").getName().equals(FlightRecorded.class.getName())) {
+                    seen.add(event.getString("cache"));
+                } else if (name.equals("ca.krasnay.javautils.ReflectiveAccess")
+                        && event.getString("member").equals("name")) {
+                    seen.add(event.getString("operation"));
+                }
+            }
+            assertEquals(new HashSet<String>(Arrays.asList("fields", "get", "set")), seen);
+        } finally {
+            recording.close();
+            file.delete();
+        }
+    }
+
     public void testGetDeclaredFieldInHierarchy() {
 
         Field field = ReflectionUtils.getDeclaredFieldInHierarchy(Child.class, "field1");
@@ -1,9 +1,18 @@
 package ca.krasnay.javautils;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
+import ca.krasnay.javautils.StringPool;
+import ca.krasnay.javautils.StringReplacer;
+import ca.krasnay.javautils.StringSlice;
 import ca.krasnay.javautils.StringUtils;
+import ca.krasnay.javautils.TokenHandler;
 
 import junit.framework.TestCase;
 
@@ -45,4 +54,287 @@ public class StringUtilsTest extends TestCase {
         assertJoin("abc|123", "|", "abc", 123);
 
     }
+
+    public void testParallelJoin() {
+
+        List<Object> items = new ArrayList<Object>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3 * StringUtils.JOIN_SEGMENT_SIZE + 17; i++) {
+            Object item = i % 1000 == 0 ? null : i % 7 == 0 ? "\u00e9" + i : Integer.valueOf(i);
+            items.add(item);
+            if (i > 0) {
+                expected.append(", ");
+            }
+            expected.append(item);
+        }
+
+        assertEquals(expected.toString(), StringUtils.join(", ", items, true));
+        assertEquals(expected.toString(), StringUtils.join(", ", items, false));
+        assertEquals(expected.toString(), StringUtils.join(", ", new LinkedList<Object>(items), true));
+        assertEquals("", StringUtils.join(", ", new ArrayList<Object>(), true));
+        assertEquals("a, b", StringUtils.join(", ", Arrays.asList("a", "b"), true));
+    }
+
+    private static List<String> toStrings(List<StringSlice> slices) {
+        List<String> result = new ArrayList<String>();
+        for (StringSlice slice : slices) {
+            result.add(slice.toString());
+        }
+        return result;
+    }
+
+    private static List<String> splitReader(String s, String delimiter) {
+        final List<String> result = new ArrayList<String>();
+        TokenHandler handler = new TokenHandler() {
+            public void handleToken(CharSequence token) {
+                result.add(token.toString());
+            }
+        };
+        if (delimiter.length() == 1) {
+            StringUtils.split(new StringReader(s), delimiter.charAt(0), handler);
+        } else {
+            StringUtils.split(new StringReader(s), delimiter, handler);
+        }
+        return result;
+    }
+
+    private static void assertSplit(String s, String delimiter, String... expected) {
+
+        List<String> tokens = Arrays.asList(expected);
+
+        if (delimiter.length() == 1) {
+            assertEquals(tokens, toStrings(StringUtils.split(s, delimiter.charAt(0))));
+            assertEquals(tokens, toStrings(StringUtils.split(new StringBuilder(s), delimiter.charAt(0))));
+        }
+        assertEquals(tokens, toStrings(StringUtils.split(s, delimiter)));
+        assertEquals(tokens, toStrings(StringUtils.split(new StringBuilder(s), delimiter)));
+        assertEquals(tokens, splitReader(s, delimiter));
+        assertEquals(s, StringUtils.join(delimiter, tokens));
+
+        int[] offsets = new int[2 * expected.length];
+        int count = delimiter.length() == 1
+                ? StringUtils.tokenize(s, delimiter.charAt(0), offsets)
+                : StringUtils.tokenize(s, delimiter, offsets);
+        assertEquals(expected.length, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], s.substring(offsets[2 * i], offsets[2 * i + 1]));
+        }
+    }
+
+    public void testSplit() {
+
+        assertSplit("", ",", "");
+        assertSplit("a", ",", "a");
+        assertSplit("a,b,,c", ",", "a", "b", "", "c");
+        assertSplit(",a,", ",", "", "a", "");
+        assertSplit("a::b:c::", "::", "a", "b:c", "");
+        assertSplit("aaab", "aab", "a", "");
+        assertSplit("x--y---z", "--", "x", "y", "-z");
+
+        StringSlice slice = StringUtils.split("foo=bar", '=').get(1);
+        assertEquals(4, slice.getStart());
+        assertEquals(7, slice.getEnd());
+        assertEquals('r', slice.charAt(2));
+        assertEquals("ar", slice.subSequence(1, 3).toString());
+        assertSame(slice.toString(), slice.toString());
+
+        assertEquals(3, StringUtils.tokenize("a,b,c", ',', new int[2]));
+
+        try {
+            StringUtils.split("abc", "");
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+        }
+
+        // Delimiters spanning reader buffers
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            expected.add("token" + i);
+            sb.append(i > 0 ? "<>" : "").append("token").append(i);
+        }
+        assertEquals(expected, splitReader(sb.toString(), "<>"));
+    }
+
+    public void testReplaceEach() {
+
+        String[] search = { "&", "<", ">", "<<", "bc", "abcd" };
+        String[] replace = { "&amp;", "&lt;", "&gt;", "LL", "X", "Y" };
+
+        assertEquals("a &lt; b &amp;&amp; c &gt; d", StringUtils.replaceEach("a < b && c > d", search, replace));
+        assertEquals("LL&lt;", StringUtils.replaceEach("<<<", search, replace));
+        assertEquals("Y aXc", StringUtils.replaceEach("abcd abcc", search, replace));
+        assertEquals("", StringUtils.replaceEach("", search, replace));
+
+        String text = "nothing to see";
+        assertSame(text, StringUtils.replaceEach(text, search, replace));
+
+        // Replacements are not rescanned; failure links are followed
+        assertEquals("ab", StringUtils.replaceEach("a", new String[] { "a" }, new String[] { "ab" }));
+        assertEquals("aa1", StringUtils.replaceEach("aaaab", new String[] { "aab", "b" }, new String[] { "1", "2" }));
+        assertEquals("2", StringUtils.replaceEach("hers", new String[] { "he", "hers", "rs" }, new String[] { "1", "2", "3" }));
+        assertEquals("s1", StringUtils.replaceEach("she", new String[] { "he", "h" }, new String[] { "1", "2" }));
+        assertEquals("\u00e9t\u00e9", StringUtils.replaceEach("ete", new String[] { "e" }, new String[] { "\u00e9" }));
+
+        StringReplacer replacer = new StringReplacer(new String[] { "{name}", "{day}", "" }, new String[] { "Bob", "Monday", "?" });
+        StringWriter out = new StringWriter();
+        replacer.replace("Hi {name}, ", out);
+        replacer.replace("see you {day}.", out);
+        assertEquals("Hi Bob, see you Monday.", out.toString());
+
+        try {
+            new StringReplacer(new String[] { "a" }, new String[0]);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testReplaceEachSinglePass() {
+
+        // A short pattern next to a long one that keeps partly matching must
+        // not make the scan back up and read the text again
+        final String text = "a".repeat(20000);
+        final int[] reads = new int[1];
+        CharSequence counted = new CharSequence() {
+            public char charAt(int index) {
+                reads[0]++;
+                return text.charAt(index);
+            }
+            public int length() {
+                return text.length();
+            }
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+            @Override
+            public String toString() {
+                return text;
+            }
+        };
+
+        StringReplacer replacer = new StringReplacer(new String[] { "a", "a".repeat(2000) + "b" }, new String[] { "b", "c" });
+        assertEquals("b".repeat(20000), replacer.replace(counted));
+        assertEquals(text.length(), reads[0]);
+
+        // Compare with a naive leftmost-longest replacement
+        String[] search = { "a", "ab", "abab", "bab", "ba", "bb", "abba" };
+        String[] replace = { "1", "2", "3", "4", "5", "6", "7" };
+        Random random = new Random(42);
+        for (int n = 0; n < 500; n++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                sb.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            String input = sb.toString();
+
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < input.length(); ) {
+                int best = -1;
+                for (int k = 0; k < search.length; k++) {
+                    if (input.startsWith(search[k], i) && (best < 0 || search[k].length() > search[best].length())) {
+                        best = k;
+                    }
+                }
+                if (best < 0) {
+                    expected.append(input.charAt(i++));
+                } else {
+                    expected.append(replace[best]);
+                    i += search[best].length();
+                }
+            }
+
+            assertEquals(input, expected.toString(), StringUtils.replaceEach(input, search, replace));
+        }
+    }
+
+    public void testEscape() throws Exception {
+
+        String plain = "plain text, nothing special";
+        assertSame(plain, StringUtils.escapeHtml(plain));
+        assertSame(plain, StringUtils.escapeJson(plain));
+        assertSame("abc", StringUtils.escapeCsv("abc"));
+        assertNull(StringUtils.escapeHtml(null));
+        assertNull(StringUtils.escapeJson(null));
+        assertNull(StringUtils.escapeCsv(null));
+
+        assertEquals("&lt;a href=&quot;x&quot;&gt;Tom &amp; Jerry&#39;s&lt;/a&gt;", StringUtils.escapeHtml("<a href=\"x\">Tom & Jerry's</a>"));
+        assertEquals("\u00e9&amp;", StringUtils.escapeHtml("\u00e9&"));
+
+        assertEquals("say \\\"hi\\\"\\n\\tC:\\\\dir\\u0001", StringUtils.escapeJson("say \"hi\"\n\tC:\\dir\u0001"));
+
+        assertEquals("\"a,b\"", StringUtils.escapeCsv("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", StringUtils.escapeCsv("say \"hi\""));
+        assertEquals("\"line1\nline2\"", StringUtils.escapeCsv("line1\nline2"));
+
+        StringWriter out = new StringWriter();
+        StringUtils.escapeHtml("a<b", out);
+        out.write(' ');
+        StringUtils.escapeJson("\"", out);
+        out.write(' ');
+        StringUtils.escapeCsv(new StringBuilder("x\"y"), out);
+        assertEquals("a&lt;b \\\" \"x\"\"y\"", out.toString());
+    }
+
+    public void testScanning() {
+
+        assertEquals(3, StringUtils.countOf("a,b,c,", ','));
+        assertEquals(0, StringUtils.countOf(new StringBuilder("abc"), ','));
+        assertEquals(2, StringUtils.countOf(new StringBuilder("\u00e9a\u00e9"), '\u00e9'));
+
+        assertEquals(2, StringUtils.indexOfAny("ab;c,d", ',', ';'));
+        assertEquals(4, StringUtils.indexOfAny("ab;c,d", 3, ',', ';'));
+        assertEquals(1, StringUtils.indexOfAny("a\u00e9~", '~', '\u00e9'));
+        assertEquals(2, StringUtils.indexOfAny("ab~", '\u00e9', '~'));
+        assertEquals(-1, StringUtils.indexOfAny("abc", 'x', 'y'));
+        assertEquals(1, StringUtils.indexOfAny("abc", 'b'));
+
+        assertEquals(2, StringUtils.firstNonWhitespace(" \tx "));
+        assertEquals(-1, StringUtils.firstNonWhitespace(" \r\n"));
+        assertEquals(-1, StringUtils.firstNonWhitespace(""));
+
+        assertTrue(StringUtils.isBlank(null));
+        assertTrue(StringUtils.isBlank(" \t\n"));
+        assertFalse(StringUtils.isBlank(" x "));
+    }
+
+    public void testIntern() {
+
+        String us = StringUtils.intern(new StringBuilder("US"));
+        assertEquals("US", us);
+        assertSame(us, StringUtils.intern("US".toCharArray(), 0, 2));
+        assertSame(us, StringUtils.intern(StringUtils.split("CA,US", ',').get(1)));
+        assertSame(us, StringUtils.intern(new String("US")));
+        assertNull(StringUtils.intern(null));
+
+        StringPool pool = new StringPool(5);
+        assertEquals(8, pool.capacity());
+
+        char[] chars = "xxABCxx".toCharArray();
+        String abc = pool.intern(chars, 2, 3);
+        assertEquals("ABC", abc);
+        assertSame(abc, pool.intern("ABC"));
+
+        // The pool is bounded; old entries are evicted
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("s" + i, pool.intern("s" + i));
+        }
+        int pooled = 0;
+        for (int i = 0; i < 1000; i++) {
+            String s = "s" + i;
+            if (pool.intern(s) != s) {
+                pooled++;
+            }
+        }
+        assertTrue(pooled <= pool.capacity());
+
+        pool.clear();
+        String abc2 = new String("ABC");
+        assertSame(abc2, pool.intern(abc2));
+
+        try {
+            pool.intern(chars, 5, 3);
+            fail("Expected exception");
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
 }
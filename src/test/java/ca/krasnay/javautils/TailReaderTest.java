@@ -0,0 +1,122 @@
+package ca.krasnay.javautils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ca.krasnay.javautils.IOUtils;
+import ca.krasnay.javautils.TailReader;
+import ca.krasnay.javautils.TokenHandler;
+
+import junit.framework.TestCase;
+
+public class TailReaderTest extends TestCase {
+
+    private static void append(File file, String s) throws Exception {
+        OutputStream out = new FileOutputStream(file, true);
+        try {
+            IOUtils.writeUtf8(s, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void appendLater(final File file, final String s) {
+        new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                    append(file, s);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }.start();
+    }
+
+    public void testPoll() throws Exception {
+
+        Path dir = Files.createTempDirectory("tail");
+        final File file = dir.resolve("app.log").toFile();
+
+        final List<String> lines = new ArrayList<String>();
+        TokenHandler handler = new TokenHandler() {
+            public void handleToken(CharSequence token) {
+                lines.add(token.toString());
+            }
+        };
+
+        try {
+            IOUtils.writeUtf8("old\n", file);
+
+            TailReader reader = new TailReader(file);
+            assertEquals(0, reader.poll(handler));
+            assertEquals(4, reader.getOffset());
+
+            append(file, "one\r\ntwo\nthr");
+            assertEquals(2, reader.poll(handler));
+            assertEquals(Arrays.asList("one", "two"), lines);
+            assertEquals(13, reader.getOffset());
+
+            append(file, "ee\n");
+            assertEquals(1, reader.poll(handler));
+            assertEquals("three", lines.get(2));
+
+            // Woken by the watch service, which is shared with a reader of
+            // another file in the same directory
+            File otherFile = dir.resolve("other.log").toFile();
+            TailReader other = new TailReader(otherFile);
+            appendLater(otherFile, "other\n");
+            assertEquals(1, other.await(30, TimeUnit.SECONDS, handler));
+            assertEquals("other", lines.remove(3));
+            other.close();
+            otherFile.delete();
+
+            appendLater(file, "four\n");
+            assertEquals(1, reader.await(30, TimeUnit.SECONDS, handler));
+            assertEquals("four", lines.get(3));
+
+            // Resume from a saved offset
+            TailReader resumed = new TailReader(file, 13);
+            lines.clear();
+            assertEquals(2, resumed.poll(handler));
+            assertEquals(Arrays.asList("three", "four"), lines);
+            resumed.close();
+
+            // Truncation
+            IOUtils.writeUtf8("five\n", file);
+            lines.clear();
+            assertEquals(1, reader.poll(handler));
+            assertEquals(Arrays.asList("five"), lines);
+
+            // Truncated and rewritten past the offset
+            IOUtils.writeUtf8("rewritten\n", file);
+            lines.clear();
+            assertEquals(1, reader.poll(handler));
+            assertEquals(Arrays.asList("rewritten"), lines);
+
+            // Rotation: the rest of the old file is read, then the new one
+            File rotated = dir.resolve("app.log.1").toFile();
+            assertTrue(file.renameTo(rotated));
+            append(rotated, "six\nseven");
+            IOUtils.writeUtf8("eight\n", file);
+            lines.clear();
+            assertEquals(3, reader.poll(handler));
+            assertEquals(Arrays.asList("six", "seven", "eight"), lines);
+
+            reader.close();
+            rotated.delete();
+
+        } finally {
+            file.delete();
+            Files.deleteIfExists(dir);
+        }
+    }
+
+}
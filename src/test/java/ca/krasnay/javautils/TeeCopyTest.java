@@ -0,0 +1,83 @@
+package ca.krasnay.javautils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import ca.krasnay.javautils.TeeCopy;
+
+import junit.framework.TestCase;
+
+public class TeeCopyTest extends TestCase {
+
+    public void testCopy() throws Exception {
+
+        byte[] data = new byte[300000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + i / 7);
+        }
+
+        byte[] expectedDigest = MessageDigest.getInstance("SHA-256").digest(data);
+        CRC32 expectedCrc = new CRC32();
+        expectedCrc.update(data, 0, data.length);
+
+        for (boolean parallel : new boolean[] { false, true }) {
+
+            ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+            ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+            final ByteArrayOutputStream slow = new ByteArrayOutputStream();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            CRC32 crc = new CRC32();
+
+            OutputStream slowOut = new OutputStream() {
+                public void write(int b) {
+                    slow.write(b);
+                }
+                public void write(byte[] b, int off, int len) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    slow.write(b, off, len);
+                }
+            };
+
+            long count = new TeeCopy()
+                    .to(out1)
+                    .to(Channels.newChannel(out2))
+                    .to(slowOut)
+                    .update(digest)
+                    .update(crc)
+                    .bufferSize(10000)
+                    .parallel(parallel)
+                    .copy(new ByteArrayInputStream(data));
+
+            assertEquals(data.length, count);
+            assertTrue(Arrays.equals(data, out1.toByteArray()));
+            assertTrue(Arrays.equals(data, out2.toByteArray()));
+            assertTrue(Arrays.equals(data, slow.toByteArray()));
+            assertTrue(Arrays.equals(expectedDigest, digest.digest()));
+            assertEquals(expectedCrc.getValue(), crc.getValue());
+        }
+
+        OutputStream failing = new OutputStream() {
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+
+        try {
+            new TeeCopy().to(new ByteArrayOutputStream()).to(failing).parallel(true).copy(new ByteArrayInputStream(data));
+            fail("Expected exception");
+        } catch (RuntimeException e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+    }
+
+}